@@ -0,0 +1,222 @@
+package conexion;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cache LRU de PreparedStatement para UNA conexión física, indexada por el texto SQL.
+// Los controladores siguen cerrando sus sentencias; el close() lógico limpia parámetros y resultados,
+// vuelve el timeout, maxRows y fetchSize a los valores del driver y deja la sentencia física lista para el siguiente uso.
+class CacheSentencias {
+
+    private final Connection fisica;
+    private final int capacidad;
+    private final AtomicLong aciertos;
+    private final AtomicLong fallos;
+    private final AtomicLong desalojos;
+
+    // accessOrder = true -> el primer elemento es el menos usado recientemente
+    private final LinkedHashMap<String, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+
+    CacheSentencias(Connection fisica, int capacidad, AtomicLong aciertos, AtomicLong fallos, AtomicLong desalojos) {
+        this.fisica = fisica;
+        this.capacidad = capacidad;
+        this.aciertos = aciertos;
+        this.fallos = fallos;
+        this.desalojos = desalojos;
+    }
+
+    // Devuelve una sentencia lógica sobre la física cacheada (o una nueva si no existe o está en uso)
+    PreparedStatement preparar(Connection logica, String sql, int clavesGeneradas, List<PreparedStatement> prestadas)
+            throws SQLException {
+        String clave = clavesGeneradas + "|" + sql;
+        Entrada entrada = entradas.get(clave);
+
+        if (entrada != null && entrada.ps.isClosed()) {
+            entradas.remove(clave);
+            entrada = null;
+        }
+
+        if (entrada != null && !entrada.enUso) {
+            aciertos.incrementAndGet();
+        } else if (entrada != null) {
+            // La misma SQL ya está abierta en esta conexión (uso anidado): sentencia sin cachear
+            fallos.incrementAndGet();
+            PreparedStatement directa = fisica.prepareStatement(sql, clavesGeneradas);
+            prestadas.add(directa);
+            return directa;
+        } else {
+            fallos.incrementAndGet();
+            entrada = new Entrada(fisica.prepareStatement(sql, clavesGeneradas));
+            entradas.put(clave, entrada);
+            desalojarExcedente();
+        }
+
+        entrada.enUso = true;
+        PreparedStatement logicaPs = entrada.nuevaVistaLogica(logica);
+        prestadas.add(logicaPs);
+        return logicaPs;
+    }
+
+    private void desalojarExcedente() {
+        Iterator<Entrada> it = entradas.values().iterator();
+        while (entradas.size() > capacidad && it.hasNext()) {
+            Entrada e = it.next();
+            if (!e.enUso) {
+                it.remove();
+                e.cerrarFisica();
+                desalojos.incrementAndGet();
+            }
+        }
+    }
+
+    int getTamano() {
+        return entradas.size();
+    }
+
+    void cerrarTodo() {
+        for (Entrada e : entradas.values()) {
+            e.cerrarFisica();
+        }
+        entradas.clear();
+    }
+
+    // --- Entrada de la cache y su vista lógica ---
+    private static class Entrada {
+
+        final PreparedStatement ps;
+        boolean enUso = false;
+        // Valores del driver al crear la sentencia
+        final int timeoutInicial;
+        final int maxFilasInicial;
+        final int fetchSizeInicial;
+
+        Entrada(PreparedStatement ps) throws SQLException {
+            this.ps = ps;
+            this.timeoutInicial = ps.getQueryTimeout();
+            this.maxFilasInicial = ps.getMaxRows();
+            this.fetchSizeInicial = ps.getFetchSize();
+        }
+
+        PreparedStatement nuevaVistaLogica(Connection logica) {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new VistaLogica(this, logica));
+        }
+
+        void cerrarFisica() {
+            try {
+                ps.close();
+            } catch (SQLException e) {
+                System.err.println("Error al cerrar sentencia cacheada: " + e.getMessage());
+            }
+        }
+    }
+
+    private static class VistaLogica implements InvocationHandler {
+
+        private final Entrada entrada;
+        private final Connection logica;
+        private final List<ResultSet> resultados = new ArrayList<>(1);
+        private boolean cerrada = false;
+        private boolean configurada = false; // El llamador cambió timeout, maxRows o fetchSize
+
+        VistaLogica(Entrada entrada, Connection logica) {
+            this.entrada = entrada;
+            this.logica = logica;
+        }
+
+        @Override
+        public Object invoke(Object p, Method metodo, Object[] args) throws Throwable {
+            switch (metodo.getName()) {
+                case "close":
+                    cerrar();
+                    return null;
+                case "isClosed":
+                    return cerrada;
+                case "getConnection":
+                    return logica;
+                case "equals":
+                    return p == args[0];
+                case "hashCode":
+                    return System.identityHashCode(p);
+                case "toString":
+                    return "SentenciaCacheada[" + entrada.ps + "]";
+                case "setQueryTimeout":
+                case "setMaxRows":
+                case "setLargeMaxRows":
+                case "setFetchSize":
+                    configurada = true;
+                    break;
+                default:
+                    break;
+            }
+            if (cerrada) {
+                throw new SQLException("La sentencia ya fue cerrada.");
+            }
+            Object r;
+            try {
+                r = metodo.invoke(entrada.ps, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (r instanceof ResultSet) {
+                resultados.add((ResultSet) r);
+            }
+            return r;
+        }
+
+        private void cerrar() {
+            if (cerrada) {
+                return;
+            }
+            cerrada = true;
+            for (ResultSet rs : resultados) {
+                try {
+                    rs.close();
+                } catch (SQLException e) {
+                    // el resultado ya estaba cerrado
+                }
+            }
+            resultados.clear();
+            try {
+                entrada.ps.clearParameters();
+                entrada.ps.clearBatch();
+                entrada.ps.clearWarnings();
+                if (configurada) {
+                    // No pasar el timeout o el fetchSize de este llamador al siguiente
+                    entrada.ps.setQueryTimeout(entrada.timeoutInicial);
+                    entrada.ps.setMaxRows(entrada.maxFilasInicial);
+                    entrada.ps.setFetchSize(entrada.fetchSizeInicial);
+                }
+            } catch (SQLException e) {
+                System.err.println("Error al limpiar sentencia cacheada: " + e.getMessage());
+            }
+            entrada.enUso = false;
+        }
+    }
+
+    // Cierra lógicamente las sentencias que el llamador olvidó cerrar antes de devolver la conexión
+    static void cerrarPrestadas(List<PreparedStatement> prestadas) {
+        for (Statement st : prestadas) {
+            try {
+                st.close();
+            } catch (SQLException e) {
+                // ignorado
+            }
+        }
+        prestadas.clear();
+    }
+}
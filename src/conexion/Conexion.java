@@ -1,25 +1,121 @@
 package conexion;
 
-import java.sql.DriverManager;
+import java.io.IOException;
 import java.sql.SQLException;
 import java.sql.*;
 
 public class Conexion {
 
-    public static Connection conectar() {
-        String conexionUrl = "jdbc:sqlserver://localhost:1433;"
-                + "database=obstetriciaDB;"
-                + "user=maykol24;"
-                + "password=maykol2003;"
-                + "loginTimeout=30;"
-                + "TrustServerCertificate=True;";
+    // La URL, credenciales y tamaños del pool vienen del perfil activo (ver ConfiguracionBD)
+    private static volatile ConfiguracionBD configuracion;
+    private static volatile PoolConexiones pool;
+    // Falla del esquema o de las migraciones: no se vuelve a intentar ni se entregan conexiones
+    private static volatile IllegalStateException errorEsquema;
 
+    // Devuelve una conexión del pool. Al cerrarla (try-with-resources) vuelve al pool.
+    public static Connection conectar() {
         try {
-            Connection con = DriverManager.getConnection(conexionUrl);
-            return con;
-        } catch (SQLException ex) {
+            return getPool().obtener();
+        } catch (SQLException | RuntimeException ex) {
             System.out.println(ex.toString());
             return null;
         }
     }
-}
\ No newline at end of file
+
+    // Prepara el pool, el esquema y las migraciones antes de abrir la aplicación.
+    // Lanza IllegalStateException si el esquema quedó a medias (script o migración fallida, checksum distinto):
+    // seguir funcionaría hasta la primera consulta que necesite lo que falta. Sin conexión no lanza:
+    // se vuelve a intentar en el próximo conectar().
+    public static void inicializar() {
+        try {
+            getPool();
+        } catch (SQLException e) {
+            System.out.println(e.toString());
+        }
+    }
+
+    private static PoolConexiones getPool() throws SQLException {
+        PoolConexiones p = pool;
+        if (p == null) {
+            synchronized (Conexion.class) {
+                p = pool;
+                if (p == null) {
+                    if (errorEsquema != null) {
+                        throw errorEsquema;
+                    }
+                    ConfiguracionBD config = getConfiguracion();
+                    System.out.println("Base de datos: perfil '" + config.getPerfil() + "'");
+                    p = new PoolConexiones(config);
+                    try {
+                        prepararEsquema(p, config);
+                        aplicarMigraciones(p, config);
+                    } catch (IllegalStateException e) {
+                        p.cerrar();
+                        errorEsquema = e;
+                        throw e;
+                    } catch (SQLException e) {
+                        p.cerrar();
+                        throw e;
+                    }
+                    Runtime.getRuntime().addShutdownHook(new Thread(p::cerrar, "pool-conexiones-cierre"));
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    // En los perfiles embebidos se crea el esquema (idempotente) antes del primer uso.
+    // SQLException = no se pudo conectar; IllegalStateException = el script falló.
+    private static void prepararEsquema(PoolConexiones p, ConfiguracionBD config) throws SQLException {
+        String script = config.getEsquemaInicial();
+        if (script == null) {
+            return;
+        }
+        try (Connection con = p.obtener()) {
+            try {
+                ScriptSQL.ejecutarRecurso(con, script);
+            } catch (SQLException | IOException e) {
+                throw new IllegalStateException("No se pudo crear el esquema inicial (" + script + "): " + e.getMessage(), e);
+            }
+        }
+    }
+
+    // Migraciones versionadas (índices, tablas nuevas); se desactivan con db.migraciones=false.
+    // SQLException = no se pudo conectar; IllegalStateException = una migración falló o cambió su checksum.
+    private static void aplicarMigraciones(PoolConexiones p, ConfiguracionBD config) throws SQLException {
+        if (!config.isMigracionesActivas()) {
+            return;
+        }
+        try (Connection con = p.obtener()) {
+            try {
+                new Migrador(con, config.getDialecto()).migrar();
+            } catch (SQLException | IOException e) {
+                throw new IllegalStateException("No se pudieron aplicar las migraciones: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    public static ConfiguracionBD getConfiguracion() {
+        ConfiguracionBD c = configuracion;
+        if (c == null) {
+            synchronized (Conexion.class) {
+                c = configuracion;
+                if (c == null) {
+                    c = ConfiguracionBD.cargar();
+                    configuracion = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    // Estadísticas del pool en tiempo de ejecución
+    public static EstadisticasPool getEstadisticasPool() {
+        try {
+            return getPool().getEstadisticas();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Pool de conexiones no disponible: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package conexion;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+// Perfil de base de datos seleccionable sin recompilar.
+//
+// Orden de resolución (cada paso sobrescribe al anterior):
+//   1. /conexion/perfiles/<perfil>.properties dentro del jar
+//      (perfil = -Dobstetricia.perfil, por defecto "sqlserver")
+//   2. Archivo externo: -Dobstetricia.config=<ruta> o ./obstetricia.properties si existe
+//   3. Propiedades de sistema individuales con el prefijo "obstetricia." (ej. -Dobstetricia.db.url=...)
+public class ConfiguracionBD {
+
+    public static final String PERFIL_POR_DEFECTO = "sqlserver";
+    private static final String PREFIJO_SISTEMA = "obstetricia.";
+
+    private final String perfil;
+    private final Properties props;
+
+    private ConfiguracionBD(String perfil, Properties props) {
+        this.perfil = perfil;
+        this.props = props;
+    }
+
+    public static ConfiguracionBD cargar() {
+        Properties externas = leerArchivoExterno();
+        String perfil = System.getProperty(PREFIJO_SISTEMA + "perfil",
+                externas.getProperty("perfil", PERFIL_POR_DEFECTO)).trim();
+
+        Properties props = new Properties();
+        String recurso = "/conexion/perfiles/" + perfil + ".properties";
+        try (InputStream in = ConfiguracionBD.class.getResourceAsStream(recurso)) {
+            if (in == null) {
+                throw new IllegalStateException("Perfil de base de datos desconocido: " + perfil + " (" + recurso + ")");
+            }
+            props.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo leer el perfil " + recurso, e);
+        }
+
+        props.putAll(externas);
+        for (String nombre : System.getProperties().stringPropertyNames()) {
+            if (nombre.startsWith(PREFIJO_SISTEMA)) {
+                props.setProperty(nombre.substring(PREFIJO_SISTEMA.length()), System.getProperty(nombre));
+            }
+        }
+        return new ConfiguracionBD(perfil, props);
+    }
+
+    private static Properties leerArchivoExterno() {
+        Properties externas = new Properties();
+        String ruta = System.getProperty(PREFIJO_SISTEMA + "config");
+        File archivo = new File(ruta != null ? ruta : "obstetricia.properties");
+        if (!archivo.isFile()) {
+            if (ruta != null) {
+                System.err.println("No se encontró el archivo de configuración: " + archivo.getAbsolutePath());
+            }
+            return externas;
+        }
+        try (Reader r = new InputStreamReader(new FileInputStream(archivo), StandardCharsets.UTF_8)) {
+            externas.load(r);
+        } catch (IOException e) {
+            System.err.println("Error al leer " + archivo.getAbsolutePath() + ": " + e.getMessage());
+        }
+        return externas;
+    }
+
+    public String getPerfil() {
+        return perfil;
+    }
+
+    public String getUrl() {
+        String url = props.getProperty("db.url");
+        if (url == null || url.isBlank()) {
+            throw new IllegalStateException("El perfil " + perfil + " no define db.url");
+        }
+        return url.trim();
+    }
+
+    public String getUsuario() {
+        return texto("db.usuario");
+    }
+
+    public String getContrasena() {
+        return texto("db.contrasena");
+    }
+
+    // "sqlserver" o "h2"; permite elegir scripts específicos de cada motor
+    public String getDialecto() {
+        return props.getProperty("db.dialecto", "sqlserver").trim();
+    }
+
+    // Script de classpath que crea el esquema al arrancar (solo perfiles embebidos)
+    public String getEsquemaInicial() {
+        return texto("db.esquema.inicial");
+    }
+
+    // Aplicar al arrancar las migraciones de /conexion/migraciones/<dialecto>/ (por defecto sí)
+    public boolean isMigracionesActivas() {
+        return Boolean.parseBoolean(props.getProperty("db.migraciones", "true").trim());
+    }
+
+    public int getPoolMinimo() {
+        return entero("pool.minimo", 2);
+    }
+
+    public int getPoolMaximo() {
+        return entero("pool.maximo", 10);
+    }
+
+    public long getPoolEsperaMs() {
+        return largo("pool.espera.ms", 10000L);
+    }
+
+    public long getPoolInactividadMs() {
+        return largo("pool.inactividad.ms", 300000L);
+    }
+
+    public long getPoolUmbralFugaMs() {
+        return largo("pool.umbral.fuga.ms", 60000L);
+    }
+
+    public int getCacheSentencias() {
+        return entero("pool.cache.sentencias", 64);
+    }
+
+    // Cada cuánto se revisa cambios_tablas para enterarse de lo que escriben otras instancias (0 = no revisar)
+    public long getIntervaloCambiosMs() {
+        return largo("cambios.intervalo.ms", 5000L);
+    }
+
+    public String getPropiedad(String clave, String porDefecto) {
+        return props.getProperty(clave, porDefecto);
+    }
+
+    private String texto(String clave) {
+        String v = props.getProperty(clave);
+        return v == null || v.isBlank() ? null : v.trim();
+    }
+
+    private int entero(String clave, int porDefecto) {
+        return (int) largo(clave, porDefecto);
+    }
+
+    private long largo(String clave, long porDefecto) {
+        String v = texto(clave);
+        if (v == null) {
+            return porDefecto;
+        }
+        try {
+            return Long.parseLong(v);
+        } catch (NumberFormatException e) {
+            System.err.println("Valor inválido para " + clave + ": " + v + ". Se usa " + porDefecto);
+            return porDefecto;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConfiguracionBD[perfil=" + perfil + ", url=" + props.getProperty("db.url") + "]";
+    }
+}
@@ -0,0 +1,117 @@
+package conexion;
+
+// Foto de las estadísticas del pool en un instante dado (solo lectura)
+public class EstadisticasPool {
+
+    private final int totales;
+    private final int activas;
+    private final int libres;
+    private final int esperando;
+    private final int minimo;
+    private final int maximo;
+    private final long prestamos;
+    private final long creadas;
+    private final long destruidas;
+    private final long timeouts;
+    private final long fugasDetectadas;
+    private final double esperaPromedioMs;
+    private final long aciertosSentencias;
+    private final long fallosSentencias;
+    private final long desalojosSentencias;
+
+    public EstadisticasPool(int totales, int activas, int libres, int esperando, int minimo, int maximo,
+            long prestamos, long creadas, long destruidas, long timeouts, long fugasDetectadas,
+            double esperaPromedioMs, long aciertosSentencias, long fallosSentencias, long desalojosSentencias) {
+        this.totales = totales;
+        this.activas = activas;
+        this.libres = libres;
+        this.esperando = esperando;
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.prestamos = prestamos;
+        this.creadas = creadas;
+        this.destruidas = destruidas;
+        this.timeouts = timeouts;
+        this.fugasDetectadas = fugasDetectadas;
+        this.esperaPromedioMs = esperaPromedioMs;
+        this.aciertosSentencias = aciertosSentencias;
+        this.fallosSentencias = fallosSentencias;
+        this.desalojosSentencias = desalojosSentencias;
+    }
+
+    public int getTotales() {
+        return totales;
+    }
+
+    public int getActivas() {
+        return activas;
+    }
+
+    public int getLibres() {
+        return libres;
+    }
+
+    public int getEsperando() {
+        return esperando;
+    }
+
+    public int getMinimo() {
+        return minimo;
+    }
+
+    public int getMaximo() {
+        return maximo;
+    }
+
+    public long getPrestamos() {
+        return prestamos;
+    }
+
+    public long getCreadas() {
+        return creadas;
+    }
+
+    public long getDestruidas() {
+        return destruidas;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public long getFugasDetectadas() {
+        return fugasDetectadas;
+    }
+
+    public double getEsperaPromedioMs() {
+        return esperaPromedioMs;
+    }
+
+    public long getAciertosSentencias() {
+        return aciertosSentencias;
+    }
+
+    public long getFallosSentencias() {
+        return fallosSentencias;
+    }
+
+    public long getDesalojosSentencias() {
+        return desalojosSentencias;
+    }
+
+    // Proporción de prepareStatement() resueltos desde la cache (0..1)
+    public double getTasaAciertosSentencias() {
+        long total = aciertosSentencias + fallosSentencias;
+        return total == 0 ? 0 : (double) aciertosSentencias / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Pool[totales=%d, activas=%d, libres=%d, esperando=%d, min=%d, max=%d, "
+                + "prestamos=%d, creadas=%d, destruidas=%d, timeouts=%d, fugas=%d, esperaProm=%.2f ms, "
+                + "sentencias[aciertos=%d, fallos=%d, desalojos=%d]]",
+                totales, activas, libres, esperando, minimo, maximo,
+                prestamos, creadas, destruidas, timeouts, fugasDetectadas, esperaPromedioMs,
+                aciertosSentencias, fallosSentencias, desalojosSentencias);
+    }
+}
@@ -0,0 +1,155 @@
+package conexion;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import utilidades.HashUtil;
+
+// Aplica al arrancar las migraciones de /conexion/migraciones/<dialecto>/ en orden.
+//
+// - indice.txt lista los scripts (VN__descripcion.sql), uno por línea, en orden de aplicación.
+// - Cada script aplicado queda registrado en la tabla schema_version con su checksum SHA-256.
+// - Si un script ya aplicado cambió, se detiene y no aplica los siguientes: hay que agregar
+//   una migración nueva en lugar de editar una existente.
+public class Migrador {
+
+    private static final String TABLA = "schema_version";
+    private static final String CARPETA = "/conexion/migraciones/";
+
+    private final Connection con;
+    private final String dialecto;
+
+    public Migrador(Connection con, String dialecto) {
+        this.con = con;
+        this.dialecto = dialecto;
+    }
+
+    // Devuelve cuántas migraciones se aplicaron en esta ejecución
+    public int migrar() throws SQLException, IOException {
+        crearTablaVersiones();
+        Map<Integer, String> aplicadas = leerAplicadas();
+
+        int nuevas = 0;
+        for (Migracion m : leerIndice()) {
+            String checksum = HashUtil.sha256(m.contenido);
+            String registrado = aplicadas.get(m.version);
+            if (registrado != null) {
+                if (!registrado.equals(checksum)) {
+                    throw new SQLException("La migración V" + m.version + " (" + m.archivo
+                            + ") fue modificada después de aplicarse (checksum distinto)");
+                }
+                continue;
+            }
+            aplicar(m, checksum);
+            System.out.println("Migración aplicada: V" + m.version + " " + m.descripcion);
+            nuevas++;
+        }
+        return nuevas;
+    }
+
+    private void aplicar(Migracion m, String checksum) throws SQLException {
+        boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(false);
+        try {
+            ScriptSQL.ejecutar(con, m.contenido);
+            String sql = "INSERT INTO " + TABLA + " (version, descripcion, checksum, fecha_aplicacion) VALUES (?, ?, ?, ?)";
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                ps.setInt(1, m.version);
+                ps.setString(2, m.descripcion);
+                ps.setString(3, checksum);
+                ps.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+                ps.executeUpdate();
+            }
+            con.commit();
+        } catch (SQLException e) {
+            con.rollback();
+            throw new SQLException("Error al aplicar la migración V" + m.version + " (" + m.archivo + "): " + e.getMessage(), e);
+        } finally {
+            con.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void crearTablaVersiones() throws SQLException {
+        DatabaseMetaData meta = con.getMetaData();
+        try (ResultSet rs = meta.getTables(con.getCatalog(), null, TABLA, new String[]{"TABLE"})) {
+            if (rs.next()) {
+                return;
+            }
+        }
+        try (Statement st = con.createStatement()) {
+            st.execute("CREATE TABLE " + TABLA + " ("
+                    + "version INT NOT NULL PRIMARY KEY, "
+                    + "descripcion VARCHAR(200) NOT NULL, "
+                    + "checksum CHAR(64) NOT NULL, "
+                    + "fecha_aplicacion DATETIME NOT NULL)");
+        }
+    }
+
+    private Map<Integer, String> leerAplicadas() throws SQLException {
+        Map<Integer, String> aplicadas = new HashMap<>();
+        try (Statement st = con.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version, checksum FROM " + TABLA)) {
+            while (rs.next()) {
+                aplicadas.put(rs.getInt(1), rs.getString(2).trim());
+            }
+        }
+        return aplicadas;
+    }
+
+    private List<Migracion> leerIndice() throws IOException {
+        String carpeta = CARPETA + dialecto + "/";
+        List<Migracion> migraciones = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new StringReader(ScriptSQL.leerRecurso(carpeta + "indice.txt")))) {
+            String linea;
+            int anterior = 0;
+            while ((linea = br.readLine()) != null) {
+                linea = linea.trim();
+                if (linea.isEmpty() || linea.startsWith("#")) {
+                    continue;
+                }
+                Migracion m = new Migracion(linea, ScriptSQL.leerRecurso(carpeta + linea));
+                if (m.version <= anterior) {
+                    throw new IOException("Las migraciones de " + carpeta + " no están en orden: " + linea);
+                }
+                anterior = m.version;
+                migraciones.add(m);
+            }
+        }
+        return migraciones;
+    }
+
+    private static class Migracion {
+
+        final String archivo;
+        final int version;
+        final String descripcion;
+        final String contenido;
+
+        // Nombre esperado: V<número>__<descripcion>.sql
+        Migracion(String archivo, String contenido) throws IOException {
+            int separador = archivo.indexOf("__");
+            if (!archivo.startsWith("V") || separador < 2 || !archivo.endsWith(".sql")) {
+                throw new IOException("Nombre de migración inválido: " + archivo);
+            }
+            try {
+                this.version = Integer.parseInt(archivo.substring(1, separador));
+            } catch (NumberFormatException e) {
+                throw new IOException("Nombre de migración inválido: " + archivo);
+            }
+            this.archivo = archivo;
+            this.descripcion = archivo.substring(separador + 2, archivo.length() - 4).replace('_', ' ');
+            this.contenido = contenido; // leerRecurso ya normaliza los fines de línea a \n
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package conexion;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Pool acotado de conexiones JDBC. Entrega conexiones "lógicas" cuyo close()
+// devuelve la conexión física al pool en lugar de cerrarla, así los controladores
+// siguen usando try-with-resources igual que antes. Cada conexión física tiene
+// además su propia cache de PreparedStatement (ver CacheSentencias).
+public class PoolConexiones {
+
+    private final String url;
+    private final String usuario;
+    private final String contrasena;
+    private final int minimo;
+    private final int maximo;
+    private final long esperaMaximaMs;
+    private final long inactividadMaximaMs;
+    private final long umbralFugaMs;
+    private final long validarTrasMs;
+    private final int tamanoCacheSentencias;
+
+    private final LinkedBlockingDeque<ConexionFisica> libres = new LinkedBlockingDeque<>();
+    private final Set<Prestamo> prestadas = ConcurrentHashMap.newKeySet();
+    private final Semaphore permisos;
+    private final ScheduledExecutorService mantenimiento;
+    private volatile boolean cerrado = false;
+
+    // Estadísticas
+    private final AtomicInteger totalFisicas = new AtomicInteger();
+    private final AtomicLong prestamos = new AtomicLong();
+    private final AtomicLong creadas = new AtomicLong();
+    private final AtomicLong destruidas = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong fugasDetectadas = new AtomicLong();
+    private final AtomicLong esperaAcumuladaNs = new AtomicLong();
+    private final AtomicLong aciertosSentencias = new AtomicLong();
+    private final AtomicLong fallosSentencias = new AtomicLong();
+    private final AtomicLong desalojosSentencias = new AtomicLong();
+
+    public PoolConexiones(ConfiguracionBD config) {
+        this(config.getUrl(), config.getUsuario(), config.getContrasena(),
+                config.getPoolMinimo(), config.getPoolMaximo(), config.getPoolEsperaMs(),
+                config.getPoolInactividadMs(), config.getPoolUmbralFugaMs(), config.getCacheSentencias());
+    }
+
+    public PoolConexiones(String url, String usuario, String contrasena, int minimo, int maximo, long esperaMaximaMs,
+            long inactividadMaximaMs, long umbralFugaMs, int tamanoCacheSentencias) {
+        if (minimo < 0 || maximo < 1 || minimo > maximo) {
+            throw new IllegalArgumentException("Tamaños de pool inválidos: min=" + minimo + ", max=" + maximo);
+        }
+        this.url = url;
+        this.usuario = usuario;
+        this.contrasena = contrasena;
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.inactividadMaximaMs = inactividadMaximaMs;
+        this.umbralFugaMs = umbralFugaMs;
+        this.tamanoCacheSentencias = tamanoCacheSentencias;
+        this.validarTrasMs = 30000L; // Solo se valida con isValid() si la conexión estuvo quieta un rato
+        this.permisos = new Semaphore(maximo, true);
+
+        this.mantenimiento = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-conexiones-mantenimiento");
+            t.setDaemon(true);
+            return t;
+        });
+        this.mantenimiento.scheduleWithFixedDelay(this::mantener, 0, 15, TimeUnit.SECONDS);
+    }
+
+    // Obtiene una conexión del pool, esperando como máximo esperaMaximaMs
+    public Connection obtener() throws SQLException {
+        if (cerrado) {
+            throw new SQLException("El pool de conexiones está cerrado.");
+        }
+        long inicio = System.nanoTime();
+        try {
+            if (!permisos.tryAcquire(esperaMaximaMs, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLException("Tiempo de espera agotado (" + esperaMaximaMs + " ms) al obtener una conexión del pool. "
+                        + "Activas: " + prestadas.size() + "/" + maximo);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido mientras se esperaba una conexión.", e);
+        }
+        esperaAcumuladaNs.addAndGet(System.nanoTime() - inicio);
+
+        try {
+            ConexionFisica fisica = tomarLibreValida();
+            if (fisica == null) {
+                fisica = crearFisica();
+            }
+            prestamos.incrementAndGet();
+            Prestamo prestamo = new Prestamo(fisica);
+            prestadas.add(prestamo);
+            return prestamo.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    private ConexionFisica tomarLibreValida() {
+        ConexionFisica fisica;
+        while ((fisica = libres.pollFirst()) != null) {
+            if (esValida(fisica)) {
+                return fisica;
+            }
+            destruir(fisica);
+        }
+        return null;
+    }
+
+    private boolean esValida(ConexionFisica fisica) {
+        try {
+            if (fisica.conexion.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - fisica.ultimoUso > validarTrasMs) {
+                return fisica.conexion.isValid(5);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private ConexionFisica crearFisica() throws SQLException {
+        Connection con = usuario == null
+                ? DriverManager.getConnection(url)
+                : DriverManager.getConnection(url, usuario, contrasena == null ? "" : contrasena);
+        totalFisicas.incrementAndGet();
+        creadas.incrementAndGet();
+        return new ConexionFisica(con, new CacheSentencias(con, tamanoCacheSentencias,
+                aciertosSentencias, fallosSentencias, desalojosSentencias));
+    }
+
+    private void destruir(ConexionFisica fisica) {
+        fisica.sentencias.cerrarTodo();
+        try {
+            fisica.conexion.close();
+        } catch (SQLException e) {
+            System.err.println("Error al cerrar conexión física: " + e.getMessage());
+        }
+        totalFisicas.decrementAndGet();
+        destruidas.incrementAndGet();
+    }
+
+    // Llamado por la conexión lógica al hacer close()
+    private void devolver(Prestamo prestamo) {
+        prestadas.remove(prestamo);
+        ConexionFisica fisica = prestamo.fisica;
+        CacheSentencias.cerrarPrestadas(prestamo.sentencias);
+        try {
+            if (cerrado || fisica.conexion.isClosed()) {
+                destruir(fisica);
+            } else if (restaurar(fisica)) {
+                fisica.ultimoUso = System.currentTimeMillis();
+                libres.offerFirst(fisica); // LIFO: la más reciente es la más "caliente"
+            } else {
+                destruir(fisica);
+            }
+        } catch (SQLException e) {
+            destruir(fisica);
+        } finally {
+            permisos.release();
+        }
+    }
+
+    // Deja la conexión como la entregó el driver para el siguiente préstamo
+    private boolean restaurar(ConexionFisica fisica) {
+        Connection con = fisica.conexion;
+        try {
+            if (!con.getAutoCommit()) {
+                con.rollback();
+                con.setAutoCommit(true);
+            }
+            if (con.getTransactionIsolation() != fisica.aislamientoInicial) {
+                con.setTransactionIsolation(fisica.aislamientoInicial);
+            }
+            if (con.isReadOnly()) {
+                con.setReadOnly(false);
+            }
+            con.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Conexión descartada al devolverla al pool: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Tarea periódica: desalojo por inactividad, mínimo de conexiones y detección de fugas
+    private void mantener() {
+        if (cerrado) {
+            return;
+        }
+        long ahora = System.currentTimeMillis();
+
+        Iterator<ConexionFisica> it = libres.descendingIterator(); // las más antiguas al final
+        while (it.hasNext() && totalFisicas.get() > minimo) {
+            ConexionFisica fisica = it.next();
+            if (ahora - fisica.ultimoUso > inactividadMaximaMs && libres.remove(fisica)) {
+                destruir(fisica);
+            }
+        }
+
+        while (totalFisicas.get() < minimo && !cerrado) {
+            try {
+                ConexionFisica fisica = crearFisica();
+                libres.offerLast(fisica);
+            } catch (SQLException e) {
+                System.err.println("No se pudo precalentar el pool: " + e.getMessage());
+                break;
+            }
+        }
+
+        if (umbralFugaMs > 0) {
+            for (Prestamo prestamo : prestadas) {
+                if (!prestamo.fugaReportada && ahora - prestamo.desde > umbralFugaMs) {
+                    prestamo.fugaReportada = true;
+                    fugasDetectadas.incrementAndGet();
+                    System.err.println("Posible fuga de conexión: prestada hace " + (ahora - prestamo.desde)
+                            + " ms sin cerrarse. Obtenida en:");
+                    prestamo.origen.printStackTrace();
+                }
+            }
+        }
+    }
+
+    public EstadisticasPool getEstadisticas() {
+        long n = prestamos.get();
+        return new EstadisticasPool(
+                totalFisicas.get(),
+                prestadas.size(),
+                libres.size(),
+                permisos.getQueueLength(),
+                minimo,
+                maximo,
+                n,
+                creadas.get(),
+                destruidas.get(),
+                timeouts.get(),
+                fugasDetectadas.get(),
+                n == 0 ? 0 : esperaAcumuladaNs.get() / n / 1000000.0,
+                aciertosSentencias.get(),
+                fallosSentencias.get(),
+                desalojosSentencias.get()
+        );
+    }
+
+    public void cerrar() {
+        cerrado = true;
+        mantenimiento.shutdownNow();
+        ConexionFisica fisica;
+        while ((fisica = libres.pollFirst()) != null) {
+            destruir(fisica);
+        }
+    }
+
+    // --- Clases internas ---
+    private static class ConexionFisica {
+
+        final Connection conexion;
+        final int aislamientoInicial;
+        final CacheSentencias sentencias;
+        volatile long ultimoUso = System.currentTimeMillis();
+
+        ConexionFisica(Connection conexion, CacheSentencias sentencias) throws SQLException {
+            this.conexion = conexion;
+            this.sentencias = sentencias;
+            this.aislamientoInicial = conexion.getTransactionIsolation();
+        }
+    }
+
+    // Un préstamo = una conexión lógica entregada a un llamador
+    private class Prestamo implements InvocationHandler {
+
+        final ConexionFisica fisica;
+        final Connection proxy;
+        final long desde = System.currentTimeMillis();
+        final Throwable origen;
+        final List<PreparedStatement> sentencias = new ArrayList<>();
+        volatile boolean fugaReportada = false;
+        // close() desde dos hilos a la vez: solo uno devuelve la conexión
+        private final AtomicBoolean cerrada = new AtomicBoolean();
+
+        Prestamo(ConexionFisica fisica) {
+            this.fisica = fisica;
+            this.origen = umbralFugaMs > 0 ? new Throwable("Origen del préstamo") : null;
+            this.proxy = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object p, Method metodo, Object[] args) throws Throwable {
+            switch (metodo.getName()) {
+                case "close":
+                    if (cerrada.compareAndSet(false, true)) {
+                        devolver(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return cerrada.get() || fisica.conexion.isClosed();
+                case "equals":
+                    return p == args[0];
+                case "hashCode":
+                    return System.identityHashCode(p);
+                case "toString":
+                    return "ConexionPool[" + fisica.conexion + "]";
+                default:
+                    break;
+            }
+            if (cerrada.get()) {
+                throw new SQLException("La conexión ya fue devuelta al pool.");
+            }
+            // prepareStatement(sql) y prepareStatement(sql, clavesGeneradas) pasan por la cache
+            if (metodo.getName().equals("prepareStatement") && args != null && tamanoCacheSentencias > 0) {
+                if (args.length == 1) {
+                    return fisica.sentencias.preparar(proxy, (String) args[0], Statement.NO_GENERATED_KEYS, sentencias);
+                }
+                if (args.length == 2 && args[1] instanceof Integer) {
+                    return fisica.sentencias.preparar(proxy, (String) args[0], (Integer) args[1], sentencias);
+                }
+            }
+            try {
+                return metodo.invoke(fisica.conexion, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
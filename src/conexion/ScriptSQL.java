@@ -0,0 +1,77 @@
+package conexion;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Lee y ejecuta scripts .sql guardados en el classpath.
+// Las sentencias se separan con ";" al final de línea o con una línea "GO" (estilo SQL Server).
+// Las líneas que empiezan con "--" se ignoran.
+public class ScriptSQL {
+
+    public static String leerRecurso(String recurso) throws IOException {
+        try (InputStream in = ScriptSQL.class.getResourceAsStream(recurso)) {
+            if (in == null) {
+                throw new IOException("No se encontró el script " + recurso);
+            }
+            StringBuilder sb = new StringBuilder();
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String linea;
+                while ((linea = br.readLine()) != null) {
+                    sb.append(linea).append('\n');
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    public static List<String> dividir(String script) {
+        List<String> sentencias = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        for (String linea : script.split("\n")) {
+            String limpia = linea.trim();
+            if (limpia.isEmpty() || limpia.startsWith("--")) {
+                continue;
+            }
+            if (limpia.equalsIgnoreCase("GO")) {
+                agregar(sentencias, actual);
+                continue;
+            }
+            if (limpia.endsWith(";")) {
+                actual.append(limpia, 0, limpia.length() - 1);
+                agregar(sentencias, actual);
+            } else {
+                actual.append(limpia).append('\n');
+            }
+        }
+        agregar(sentencias, actual);
+        return sentencias;
+    }
+
+    private static void agregar(List<String> sentencias, StringBuilder actual) {
+        String s = actual.toString().trim();
+        if (!s.isEmpty()) {
+            sentencias.add(s);
+        }
+        actual.setLength(0);
+    }
+
+    public static void ejecutar(Connection con, String script) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            for (String sentencia : dividir(script)) {
+                st.execute(sentencia);
+            }
+        }
+    }
+
+    public static void ejecutarRecurso(Connection con, String recurso) throws SQLException, IOException {
+        ejecutar(con, leerRecurso(recurso));
+    }
+}
@@ -0,0 +1,54 @@
+-- Esquema de obstetriciaDB para la base embebida (H2 en modo MSSQLServer).
+-- Es idempotente: se ejecuta en cada arranque de los perfiles "local" y "memoria".
+
+CREATE TABLE IF NOT EXISTS usuarios (
+    id INT IDENTITY(1,1) PRIMARY KEY,
+    nombre_completo NVARCHAR(150) NOT NULL,
+    usuario NVARCHAR(50) NOT NULL UNIQUE,
+    contrasena NVARCHAR(64) NOT NULL,
+    dni NVARCHAR(8),
+    pregunta_seguridad NVARCHAR(200),
+    respuesta_seguridad NVARCHAR(200),
+    intentos_restantes INT NOT NULL DEFAULT 5,
+    estado INT NOT NULL DEFAULT 1,
+    rol NVARCHAR(20) NOT NULL,
+    fecha_bloqueo DATETIME NULL
+);
+
+CREATE TABLE IF NOT EXISTS pacientes (
+    id INT IDENTITY(1,1) PRIMARY KEY,
+    nombre_completo NVARCHAR(150) NOT NULL,
+    dni NVARCHAR(8) NOT NULL UNIQUE,
+    fecha_nacimiento DATE NOT NULL,
+    telefono NVARCHAR(15),
+    direccion NVARCHAR(200),
+    estado INT NOT NULL DEFAULT 1
+);
+
+CREATE TABLE IF NOT EXISTS programas_preventivos (
+    id_programa INT IDENTITY(1,1) PRIMARY KEY,
+    nombre_programa NVARCHAR(100) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS citas (
+    id_cita INT IDENTITY(1,1) PRIMARY KEY,
+    id_obstetra INT NOT NULL REFERENCES usuarios(id),
+    id_paciente INT NOT NULL REFERENCES pacientes(id),
+    fecha_cita DATETIME NOT NULL,
+    id_programa INT NOT NULL REFERENCES programas_preventivos(id_programa),
+    estado_cita INT NOT NULL DEFAULT 1,
+    observaciones NVARCHAR(500),
+    fecha_registro DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Catálogo de programas preventivos
+INSERT INTO programas_preventivos (nombre_programa) SELECT 'Papanicolaou' WHERE NOT EXISTS (SELECT 1 FROM programas_preventivos WHERE nombre_programa = 'Papanicolaou');
+INSERT INTO programas_preventivos (nombre_programa) SELECT 'IVA' WHERE NOT EXISTS (SELECT 1 FROM programas_preventivos WHERE nombre_programa = 'IVA');
+INSERT INTO programas_preventivos (nombre_programa) SELECT 'VPH' WHERE NOT EXISTS (SELECT 1 FROM programas_preventivos WHERE nombre_programa = 'VPH');
+INSERT INTO programas_preventivos (nombre_programa) SELECT 'Consejería' WHERE NOT EXISTS (SELECT 1 FROM programas_preventivos WHERE nombre_programa = 'Consejería');
+INSERT INTO programas_preventivos (nombre_programa) SELECT 'Examen de mamas' WHERE NOT EXISTS (SELECT 1 FROM programas_preventivos WHERE nombre_programa = 'Examen de mamas');
+
+-- Usuario administrador inicial: admin / admin123 (SHA-256)
+INSERT INTO usuarios (nombre_completo, usuario, contrasena, dni, pregunta_seguridad, respuesta_seguridad, intentos_restantes, estado, rol)
+SELECT 'ADMINISTRADOR LOCAL', 'admin', '240be518fabd2724ddb6f04eeb1da5967448d7e831c08c8fa822809f74c720a9', '00000000', '¿Cuál es el nombre de tu mascota?', 'admin', 5, 1, 'ADMIN'
+WHERE NOT EXISTS (SELECT 1 FROM usuarios WHERE usuario = 'admin');
@@ -0,0 +1,20 @@
+-- Índices para las consultas de ControladorCita, ControladorPaciente y ControladorUsuario.
+-- H2 no tiene INCLUDE: las columnas que en SQL Server van incluidas aquí se agregan a la clave.
+
+-- registrarCitaAtomica / yaTieneCitaEnMismoProgramaEsteAnio
+CREATE INDEX IF NOT EXISTS IX_citas_paciente_programa_fecha ON citas (id_paciente, id_programa, fecha_cita);
+
+-- listarCitasPorObstetraConDetalles
+CREATE INDEX IF NOT EXISTS IX_citas_obstetra_fecha ON citas (id_obstetra, fecha_cita DESC);
+
+-- listarCitasPagina con filtro de estado (keyset)
+CREATE INDEX IF NOT EXISTS IX_citas_estado_fecha ON citas (estado_cita, fecha_cita, id_cita);
+
+-- listarCitasPagina sin filtro y estadísticas por rango de fechas
+CREATE INDEX IF NOT EXISTS IX_citas_fecha ON citas (fecha_cita, id_cita);
+
+-- consultarPagina: estado = 1 ORDER BY nombre_completo, id
+CREATE INDEX IF NOT EXISTS IX_pacientes_estado_nombre ON pacientes (estado, nombre_completo, id);
+
+-- existeDni / obtenerNombrePorDni
+CREATE INDEX IF NOT EXISTS IX_usuarios_dni ON usuarios (dni, estado);
@@ -0,0 +1,10 @@
+-- Versión por tabla para que cada instancia de la aplicación se entere de lo que escriben las demás
+-- (NotificadorCambios).
+CREATE TABLE IF NOT EXISTS cambios_tablas (
+    tabla VARCHAR(50) NOT NULL PRIMARY KEY,
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+INSERT INTO cambios_tablas (tabla, version) SELECT 'citas', 0 WHERE NOT EXISTS (SELECT 1 FROM cambios_tablas WHERE tabla = 'citas');
+INSERT INTO cambios_tablas (tabla, version) SELECT 'pacientes', 0 WHERE NOT EXISTS (SELECT 1 FROM cambios_tablas WHERE tabla = 'pacientes');
+INSERT INTO cambios_tablas (tabla, version) SELECT 'usuarios', 0 WHERE NOT EXISTS (SELECT 1 FROM cambios_tablas WHERE tabla = 'usuarios');
@@ -0,0 +1,7 @@
+-- Marca de última modificación en citas y pacientes para refrescar solo lo que cambió.
+-- H2 la actualiza sola con ON UPDATE (en SQL Server lo hace un trigger).
+ALTER TABLE citas ADD COLUMN IF NOT EXISTS fecha_modificacion TIMESTAMP(3) DEFAULT LOCALTIMESTAMP ON UPDATE LOCALTIMESTAMP NOT NULL;
+ALTER TABLE pacientes ADD COLUMN IF NOT EXISTS fecha_modificacion TIMESTAMP(3) DEFAULT LOCALTIMESTAMP ON UPDATE LOCALTIMESTAMP NOT NULL;
+
+CREATE INDEX IF NOT EXISTS IX_citas_fecha_modificacion ON citas (fecha_modificacion);
+CREATE INDEX IF NOT EXISTS IX_pacientes_fecha_modificacion ON pacientes (fecha_modificacion);
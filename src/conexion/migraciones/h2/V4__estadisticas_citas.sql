@@ -0,0 +1,21 @@
+-- Contadores de citas por programa, obstetra, mes y estado (ContadoresCitas).
+-- ControladorCita los actualiza en la misma transacción que registra o cambia el estado de una cita;
+-- las estadísticas leen esta tabla en lugar de agrupar toda la tabla citas.
+CREATE TABLE IF NOT EXISTS estadisticas_citas (
+    id_programa INT NOT NULL,
+    id_obstetra INT NOT NULL,
+    anio INT NOT NULL,
+    mes INT NOT NULL,
+    estado_cita INT NOT NULL,
+    cantidad INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (id_programa, id_obstetra, anio, mes, estado_cita)
+);
+
+CREATE INDEX IF NOT EXISTS IX_estadisticas_citas_obstetra ON estadisticas_citas (id_obstetra, anio, mes);
+
+-- Carga inicial con las citas existentes (solo si la tabla está vacía)
+INSERT INTO estadisticas_citas (id_programa, id_obstetra, anio, mes, estado_cita, cantidad)
+SELECT id_programa, id_obstetra, YEAR(fecha_cita), MONTH(fecha_cita), estado_cita, COUNT(*)
+FROM citas
+WHERE NOT EXISTS (SELECT 1 FROM estadisticas_citas)
+GROUP BY id_programa, id_obstetra, YEAR(fecha_cita), MONTH(fecha_cita), estado_cita;
@@ -0,0 +1,45 @@
+-- Índices para las consultas de ControladorCita, ControladorPaciente y ControladorUsuario.
+-- Cada índice se crea solo si no existe (puede haberse creado a mano en la base de la clínica).
+
+-- registrarCitaAtomica / yaTieneCitaEnMismoProgramaEsteAnio: id_paciente = ? AND id_programa = ? AND fecha_cita en rango
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_citas_paciente_programa_fecha' AND object_id = OBJECT_ID('dbo.citas'))
+    CREATE INDEX IX_citas_paciente_programa_fecha ON dbo.citas (id_paciente, id_programa, fecha_cita);
+GO
+
+-- listarCitasPorObstetraConDetalles: id_obstetra = ? ORDER BY fecha_cita DESC
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_citas_obstetra_fecha' AND object_id = OBJECT_ID('dbo.citas'))
+    CREATE INDEX IX_citas_obstetra_fecha ON dbo.citas (id_obstetra, fecha_cita DESC)
+        INCLUDE (id_paciente, id_programa, estado_cita, fecha_registro);
+GO
+
+-- listarCitasPagina con filtro: estado_cita = ? ORDER BY fecha_cita, id_cita (keyset)
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_citas_estado_fecha' AND object_id = OBJECT_ID('dbo.citas'))
+    CREATE INDEX IX_citas_estado_fecha ON dbo.citas (estado_cita, fecha_cita, id_cita)
+        INCLUDE (id_paciente, id_obstetra, id_programa, fecha_registro);
+GO
+
+-- listarCitasPagina sin filtro y estadísticas por rango de fechas: ORDER BY fecha_cita, id_cita
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_citas_fecha' AND object_id = OBJECT_ID('dbo.citas'))
+    CREATE INDEX IX_citas_fecha ON dbo.citas (fecha_cita, id_cita)
+        INCLUDE (id_paciente, id_obstetra, id_programa, estado_cita, fecha_registro);
+GO
+
+-- obtenerIdPacientePorDNI / buscarPorDni: dni = ?
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_pacientes_dni' AND object_id = OBJECT_ID('dbo.pacientes'))
+    CREATE INDEX IX_pacientes_dni ON dbo.pacientes (dni) INCLUDE (estado);
+GO
+
+-- consultarPagina: estado = 1 ORDER BY nombre_completo, id
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_pacientes_estado_nombre' AND object_id = OBJECT_ID('dbo.pacientes'))
+    CREATE INDEX IX_pacientes_estado_nombre ON dbo.pacientes (estado, nombre_completo, id);
+GO
+
+-- login, bloqueo y recuperación de contraseña: usuario = ?
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_usuarios_usuario' AND object_id = OBJECT_ID('dbo.usuarios'))
+    CREATE INDEX IX_usuarios_usuario ON dbo.usuarios (usuario);
+GO
+
+-- existeDni / obtenerNombrePorDni: dni = ? AND estado = 1
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_usuarios_dni' AND object_id = OBJECT_ID('dbo.usuarios'))
+    CREATE INDEX IX_usuarios_dni ON dbo.usuarios (dni) INCLUDE (estado, nombre_completo);
+GO
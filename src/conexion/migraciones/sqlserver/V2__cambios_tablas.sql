@@ -0,0 +1,21 @@
+-- Versión por tabla para que cada instancia de la aplicación se entere de lo que escriben las demás.
+-- NotificadorCambios incrementa la versión al escribir en citas, pacientes o usuarios
+-- y cada instancia la consulta periódicamente para invalidar sus caches.
+IF OBJECT_ID('dbo.cambios_tablas', 'U') IS NULL
+    CREATE TABLE dbo.cambios_tablas (
+        tabla VARCHAR(50) NOT NULL PRIMARY KEY,
+        version BIGINT NOT NULL DEFAULT 0
+    )
+GO
+
+IF NOT EXISTS (SELECT 1 FROM dbo.cambios_tablas WHERE tabla = 'citas')
+    INSERT INTO dbo.cambios_tablas (tabla, version) VALUES ('citas', 0)
+GO
+
+IF NOT EXISTS (SELECT 1 FROM dbo.cambios_tablas WHERE tabla = 'pacientes')
+    INSERT INTO dbo.cambios_tablas (tabla, version) VALUES ('pacientes', 0)
+GO
+
+IF NOT EXISTS (SELECT 1 FROM dbo.cambios_tablas WHERE tabla = 'usuarios')
+    INSERT INTO dbo.cambios_tablas (tabla, version) VALUES ('usuarios', 0)
+GO
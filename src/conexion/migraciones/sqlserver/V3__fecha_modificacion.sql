@@ -0,0 +1,42 @@
+-- Marca de última modificación en citas y pacientes: al refrescar una tabla abierta se traen
+-- solo las filas con fecha_modificacion posterior a la última vista.
+-- La mantiene la base (valor por defecto al insertar y trigger al actualizar), así también
+-- cuentan los cambios hechos fuera de la aplicación.
+-- (Los triggers no llevan ";" al final de línea: ScriptSQL corta las sentencias ahí.)
+
+IF COL_LENGTH('dbo.citas', 'fecha_modificacion') IS NULL
+    ALTER TABLE dbo.citas ADD fecha_modificacion DATETIME2(3) NOT NULL
+        CONSTRAINT DF_citas_fecha_modificacion DEFAULT SYSDATETIME()
+GO
+
+IF COL_LENGTH('dbo.pacientes', 'fecha_modificacion') IS NULL
+    ALTER TABLE dbo.pacientes ADD fecha_modificacion DATETIME2(3) NOT NULL
+        CONSTRAINT DF_pacientes_fecha_modificacion DEFAULT SYSDATETIME()
+GO
+
+CREATE OR ALTER TRIGGER dbo.TR_citas_fecha_modificacion ON dbo.citas AFTER UPDATE AS
+BEGIN
+    SET NOCOUNT ON
+    IF UPDATE(fecha_modificacion) RETURN
+    UPDATE c SET fecha_modificacion = SYSDATETIME()
+    FROM dbo.citas c JOIN inserted i ON c.id_cita = i.id_cita
+END
+GO
+
+CREATE OR ALTER TRIGGER dbo.TR_pacientes_fecha_modificacion ON dbo.pacientes AFTER UPDATE AS
+BEGIN
+    SET NOCOUNT ON
+    IF UPDATE(fecha_modificacion) RETURN
+    UPDATE p SET fecha_modificacion = SYSDATETIME()
+    FROM dbo.pacientes p JOIN inserted i ON p.id = i.id
+END
+GO
+
+-- listarCitasModificadasDesde / listarPacientesModificadosDesde: fecha_modificacion >= ?
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_citas_fecha_modificacion' AND object_id = OBJECT_ID('dbo.citas'))
+    CREATE INDEX IX_citas_fecha_modificacion ON dbo.citas (fecha_modificacion);
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_pacientes_fecha_modificacion' AND object_id = OBJECT_ID('dbo.pacientes'))
+    CREATE INDEX IX_pacientes_fecha_modificacion ON dbo.pacientes (fecha_modificacion);
+GO
@@ -0,0 +1,26 @@
+-- Contadores de citas por programa, obstetra, mes y estado (ContadoresCitas).
+-- ControladorCita los actualiza en la misma transacción que registra o cambia el estado de una cita;
+-- las estadísticas leen esta tabla en lugar de agrupar toda la tabla citas.
+IF OBJECT_ID('dbo.estadisticas_citas', 'U') IS NULL
+    CREATE TABLE dbo.estadisticas_citas (
+        id_programa INT NOT NULL,
+        id_obstetra INT NOT NULL,
+        anio INT NOT NULL,
+        mes INT NOT NULL,
+        estado_cita INT NOT NULL,
+        cantidad INT NOT NULL DEFAULT 0,
+        CONSTRAINT PK_estadisticas_citas PRIMARY KEY (id_programa, id_obstetra, anio, mes, estado_cita)
+    )
+GO
+
+IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'IX_estadisticas_citas_obstetra' AND object_id = OBJECT_ID('dbo.estadisticas_citas'))
+    CREATE INDEX IX_estadisticas_citas_obstetra ON dbo.estadisticas_citas (id_obstetra, anio, mes)
+GO
+
+-- Carga inicial con las citas existentes (solo si la tabla está vacía)
+IF NOT EXISTS (SELECT 1 FROM dbo.estadisticas_citas)
+    INSERT INTO dbo.estadisticas_citas (id_programa, id_obstetra, anio, mes, estado_cita, cantidad)
+    SELECT id_programa, id_obstetra, YEAR(fecha_cita), MONTH(fecha_cita), estado_cita, COUNT(*)
+    FROM dbo.citas
+    GROUP BY id_programa, id_obstetra, YEAR(fecha_cita), MONTH(fecha_cita), estado_cita
+GO
@@ -0,0 +1,13 @@
+-- Bocetos HyperLogLog de pacientes atendidos por programa, obstetra y mes (AlcancePacientes).
+-- Se actualizan al marcar una cita como atendida; la primera carga la hace la aplicación al iniciar.
+IF OBJECT_ID('dbo.alcance_pacientes', 'U') IS NULL
+    CREATE TABLE dbo.alcance_pacientes (
+        id_programa INT NOT NULL,
+        id_obstetra INT NOT NULL,
+        anio INT NOT NULL,
+        mes INT NOT NULL,
+        registros VARBINARY(4096) NOT NULL,
+        version INT NOT NULL DEFAULT 0,
+        CONSTRAINT PK_alcance_pacientes PRIMARY KEY (id_programa, id_obstetra, anio, mes)
+    )
+GO
@@ -0,0 +1,242 @@
+package controlador;
+
+import conexion.Conexion;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import utilidades.HyperLogLog;
+
+// Pacientes distintos atendidos por programa, obstetra y mes, como bocetos HyperLogLog de 4 KB
+// (tabla alcance_pacientes, migración V5).
+//
+// - ControladorCita llama a registrarAtencion() en la misma transacción en que una cita queda atendida.
+//   El boceto se lee, se actualiza y se guarda con control de versión: una actualización simultánea
+//   desde otro equipo no se pierde, se reintenta.
+// - Cualquier agrupación (varios meses, programas u obstetras) se responde uniendo los bocetos de sus celdas,
+//   sin COUNT(DISTINCT) sobre citas.
+// - Un boceto no admite quitar valores: si una cita atendida vuelve a otro estado, el paciente sigue contado
+//   hasta la próxima reconstruir(), que no bloquea las citas mientras lee (ver el método).
+public final class AlcancePacientes {
+
+    private static final AlcancePacientes INSTANCIA = new AlcancePacientes();
+
+    private static final int REINTENTOS = 5;
+
+    private AlcancePacientes() {
+    }
+
+    public static AlcancePacientes getInstancia() {
+        return INSTANCIA;
+    }
+
+    // Agrega el paciente al boceto de la celda de la cita. No confirma: la transacción es de quien llama.
+    static void registrarAtencion(Connection con, int idPrograma, int idObstetra, Timestamp fechaCita, int idPaciente) throws SQLException {
+        LocalDateTime fecha = fechaCita.toLocalDateTime();
+        HyperLogLog paciente = new HyperLogLog();
+        paciente.agregar(idPaciente);
+        fusionar(con, Arrays.asList(idPrograma, idObstetra, fecha.getYear(), fecha.getMonthValue()), paciente);
+    }
+
+    // Une el boceto al guardado en la celda {id_programa, id_obstetra, anio, mes} (o la crea), con control de versión:
+    // si otro equipo guardó la celda entre la lectura y el UPDATE, se vuelve a leer y a unir.
+    private static void fusionar(Connection con, List<Integer> celda, HyperLogLog nuevo) throws SQLException {
+        String sqlLeer = "SELECT registros, version FROM alcance_pacientes WHERE id_programa = ? AND id_obstetra = ? AND anio = ? AND mes = ?";
+        for (int intento = 1; intento <= REINTENTOS; intento++) {
+            HyperLogLog boceto = null;
+            int version = 0;
+            try (PreparedStatement ps = con.prepareStatement(sqlLeer)) {
+                asignarCelda(ps, 1, celda);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        boceto = HyperLogLog.desdeBytes(rs.getBytes(1));
+                        version = rs.getInt(2);
+                    }
+                }
+            }
+
+            if (boceto == null) {
+                if (insertar(con, celda, nuevo)) {
+                    return;
+                }
+                continue; // Otro equipo creó la celda; se vuelve a leer
+            }
+
+            byte[] antes = boceto.aBytes();
+            boceto.unir(nuevo);
+            byte[] despues = boceto.aBytes();
+            if (Arrays.equals(antes, despues)) {
+                return; // Los pacientes ya estaban (o no cambia ningún registro)
+            }
+            if (guardar(con, celda, despues, version)) {
+                return;
+            }
+        }
+        throw new SQLException("No se pudo actualizar el alcance de pacientes: la celda cambió en cada intento.");
+    }
+
+    // false si la celda ya existe (23xxx = clave duplicada: otro equipo la creó)
+    private static boolean insertar(Connection con, List<Integer> celda, HyperLogLog boceto) throws SQLException {
+        String sql = "INSERT INTO alcance_pacientes (registros, id_programa, id_obstetra, anio, mes, version) VALUES (?, ?, ?, ?, ?, 0)";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setBytes(1, boceto.aBytes());
+            asignarCelda(ps, 2, celda);
+            ps.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                throw e;
+            }
+            return false;
+        }
+    }
+
+    // false si la celda ya no está en esa versión
+    private static boolean guardar(Connection con, List<Integer> celda, byte[] registros, int version) throws SQLException {
+        String sql = "UPDATE alcance_pacientes SET registros = ?, version = version + 1 "
+                + "WHERE id_programa = ? AND id_obstetra = ? AND anio = ? AND mes = ? AND version = ?";
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setBytes(1, registros);
+            asignarCelda(ps, 2, celda);
+            ps.setInt(6, version);
+            return ps.executeUpdate() > 0;
+        }
+    }
+
+    private static void asignarCelda(PreparedStatement ps, int desde, List<Integer> celda) throws SQLException {
+        for (int i = 0; i < 4; i++) {
+            ps.setInt(desde + i, celda.get(i));
+        }
+    }
+
+    // Bocetos unidos por programa para los meses desde..hasta (null = sin límite) y un obstetra (null = todos).
+    // El resultado viene de CacheConsultas (se descarta con la próxima escritura en citas): no modificarlo, usar copia().
+    // cancelacion null = no se cancela.
+    public Map<Integer, HyperLogLog> bocetosPorPrograma(Integer idObstetra, YearMonth desde, YearMonth hasta, ConsultaCancelable cancelacion) throws SQLException {
+        String sql = "SELECT id_programa, registros FROM alcance_pacientes WHERE anio * 12 + mes BETWEEN ? AND ?"
+                + (idObstetra != null ? " AND id_obstetra = ?" : "");
+        int primero = desde != null ? desde.getYear() * 12 + desde.getMonthValue() : 0;
+        int ultimo = hasta != null ? hasta.getYear() * 12 + hasta.getMonthValue() : Integer.MAX_VALUE;
+        List<Integer> parametros = idObstetra != null ? Arrays.asList(primero, ultimo, idObstetra) : Arrays.asList(primero, ultimo);
+        return CacheConsultas.getInstancia().obtener(sql, parametros, () -> {
+            Map<Integer, HyperLogLog> porPrograma = new HashMap<>();
+            try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
+                for (int i = 0; i < parametros.size(); i++) {
+                    ps.setInt(i + 1, parametros.get(i));
+                }
+                if (cancelacion != null) {
+                    cancelacion.registrar(ps);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        HyperLogLog celda = HyperLogLog.desdeBytes(rs.getBytes(2));
+                        HyperLogLog union = porPrograma.putIfAbsent(rs.getInt(1), celda);
+                        if (union != null) {
+                            union.unir(celda);
+                        }
+                    }
+                } finally {
+                    if (cancelacion != null) {
+                        cancelacion.liberar();
+                    }
+                }
+            }
+            return porPrograma;
+        }, CacheConsultas.CITAS);
+    }
+
+    // Vuelve a calcular todos los bocetos desde las citas atendidas, sin bloquear la tabla citas:
+    // - Se anotan las versiones de las celdas y después se recorren las citas con lectura confirmada (READ COMMITTED).
+    // - Cada celda se reemplaza solo si sigue en la versión anotada. Si cambió, recibió una atención durante
+    //   el recorrido que quizás no se leyó: se une en lugar de reemplazar (con el mismo control de versión).
+    // - Las celdas que ya no tienen atenciones se borran, también solo si no cambiaron.
+    // cancelacion (null = no se cancela) corta el recorrido de citas; en ese caso no se modifica nada.
+    public boolean reconstruir(ConsultaCancelable cancelacion) {
+        Map<List<Integer>, HyperLogLog> celdas = new HashMap<>();
+        Map<List<Integer>, Integer> versiones = new HashMap<>();
+        String sqlCitas = "SELECT id_programa, id_obstetra, fecha_cita, id_paciente FROM citas WHERE estado_cita = 2";
+        try (Connection con = Conexion.conectar()) {
+            if (con == null) {
+                return false;
+            }
+            try (PreparedStatement ps = con.prepareStatement("SELECT id_programa, id_obstetra, anio, mes, version FROM alcance_pacientes");
+                    ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    versiones.put(Arrays.asList(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4)), rs.getInt(5));
+                }
+            }
+            try (PreparedStatement ps = con.prepareStatement(sqlCitas)) {
+                ps.setFetchSize(1000);
+                if (cancelacion != null) {
+                    cancelacion.registrar(ps);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        LocalDateTime fecha = rs.getTimestamp(3).toLocalDateTime();
+                        List<Integer> clave = Arrays.asList(rs.getInt(1), rs.getInt(2), fecha.getYear(), fecha.getMonthValue());
+                        celdas.computeIfAbsent(clave, c -> new HyperLogLog()).agregar(rs.getInt(4));
+                    }
+                } finally {
+                    if (cancelacion != null) {
+                        cancelacion.liberar();
+                    }
+                }
+            }
+
+            for (Map.Entry<List<Integer>, HyperLogLog> e : celdas.entrySet()) {
+                Integer version = versiones.remove(e.getKey());
+                boolean reemplazada = version != null
+                        ? guardar(con, e.getKey(), e.getValue().aBytes(), version)
+                        : insertar(con, e.getKey(), e.getValue());
+                if (!reemplazada) {
+                    fusionar(con, e.getKey(), e.getValue());
+                }
+            }
+            try (PreparedStatement ps = con.prepareStatement("DELETE FROM alcance_pacientes "
+                    + "WHERE id_programa = ? AND id_obstetra = ? AND anio = ? AND mes = ? AND version = ?")) {
+                for (Map.Entry<List<Integer>, Integer> e : versiones.entrySet()) {
+                    asignarCelda(ps, 1, e.getKey());
+                    ps.setInt(5, e.getValue());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        } catch (SQLException e) {
+            if (cancelacion == null || !cancelacion.isCancelada()) {
+                System.err.println("Error al reconstruir el alcance de pacientes: " + e.getMessage());
+            }
+            return false;
+        }
+        NotificadorCambios.getInstancia().registrarCambio(CacheConsultas.CITAS);
+        return true;
+    }
+
+    // Primera carga: la migración crea la tabla vacía y los bocetos solo se pueden calcular en la aplicación
+    public void inicializarSiHaceFalta(ConsultaCancelable cancelacion) {
+        String sql = "SELECT CASE WHEN EXISTS (SELECT 1 FROM alcance_pacientes) THEN 0 "
+                + "WHEN EXISTS (SELECT 1 FROM citas WHERE estado_cita = 2) THEN 1 ELSE 0 END";
+        boolean vacia;
+        try (Connection con = Conexion.conectar()) {
+            if (con == null) {
+                return;
+            }
+            try (PreparedStatement ps = con.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+                vacia = rs.next() && rs.getInt(1) == 1;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al revisar el alcance de pacientes: " + e.getMessage());
+            return;
+        }
+        if (vacia) {
+            System.out.println("Calculando el alcance de pacientes por primera vez.");
+            reconstruir(cancelacion);
+        }
+    }
+}
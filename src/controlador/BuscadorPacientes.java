@@ -0,0 +1,155 @@
+package controlador;
+
+import conexion.Conexion;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import modelo.PacienteResumen;
+import utilidades.CacheLRU;
+import utilidades.FiltroBloom;
+
+// Búsqueda de pacientes por DNI para el autocompletado de citas.
+//
+// - Una sola consulta trae id, nombre, DNI y estado.
+// - Los pacientes encontrados quedan en una cache LRU.
+// - Un filtro de Bloom con todos los DNI registrados descarta sin consultar los DNI que no existen
+//   (el caso normal mientras se escribe o cuando el paciente aún no se registró).
+//   Se reconstruye cada cierto tiempo, o cuando NotificadorCambios avisa que otro equipo cambió pacientes;
+//   los registrados desde esta aplicación se agregan al momento (ControladorPaciente).
+public final class BuscadorPacientes {
+
+    private static final BuscadorPacientes INSTANCIA = new BuscadorPacientes();
+
+    private static final long VIGENCIA_FILTRO_MS = 10 * 60 * 1000L;
+    private static final double FALSOS_POSITIVOS = 0.01;
+
+    private final CacheLRU<String, PacienteResumen> cache = new CacheLRU<>(512);
+    private volatile FiltroBloom filtro;
+    private volatile long filtroCargadoEn;
+
+    private BuscadorPacientes() {
+    }
+
+    public static BuscadorPacientes getInstancia() {
+        return INSTANCIA;
+    }
+
+    // Para el autocompletado: si el filtro de Bloom dice que el DNI no existe, no consulta.
+    public PacienteResumen buscarPorDni(String dni) {
+        return buscar(dni, false);
+    }
+
+    // Para validar antes de guardar: un DNI descartado por el filtro se confirma igual contra la base,
+    // por si el paciente se registró desde otro equipo después de la última carga del filtro.
+    public PacienteResumen buscarPorDniVerificado(String dni) {
+        return buscar(dni, true);
+    }
+
+    private PacienteResumen buscar(String dni, boolean verificarAusentes) {
+        if (dni == null || dni.isBlank()) {
+            return null;
+        }
+        String clave = dni.trim();
+        PacienteResumen enCache = cache.get(clave);
+        if (enCache != null) {
+            return enCache;
+        }
+        FiltroBloom f = filtroVigente();
+        if (f != null && !verificarAusentes && !f.puedeContener(clave)) {
+            return null;
+        }
+
+        String sql = "SELECT id, nombre_completo, dni, estado FROM pacientes WHERE dni = ?";
+        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setString(1, clave);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    PacienteResumen p = new PacienteResumen(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getInt(4));
+                    cache.put(clave, p);
+                    if (f != null) {
+                        f.agregar(clave);
+                    }
+                    return p;
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al buscar paciente por DNI: " + e.getMessage());
+        }
+        return null;
+    }
+
+    // Un paciente nuevo (o con DNI cambiado) debe pasar el filtro de inmediato
+    public void agregarDni(String dni) {
+        FiltroBloom f = filtro;
+        if (f != null && dni != null) {
+            f.agregar(dni.trim());
+        }
+    }
+
+    // Quita de la cache al paciente modificado o eliminado (el filtro no se toca: no admite borrados)
+    public void invalidar(int idPaciente) {
+        cache.removeIf(p -> p.getId() == idPaciente);
+    }
+
+    // Otra instancia cambió pacientes: se vacía la cache y el filtro se vuelve a cargar en el próximo uso
+    public void invalidarTodo() {
+        cache.clear();
+        filtroCargadoEn = 0;
+    }
+
+    public long getAciertosCache() {
+        return cache.getAciertos();
+    }
+
+    public long getFallosCache() {
+        return cache.getFallos();
+    }
+
+    // null si no se pudo cargar (sin conexión): en ese caso se consulta siempre
+    private FiltroBloom filtroVigente() {
+        FiltroBloom f = filtro;
+        if (f == null || System.currentTimeMillis() - filtroCargadoEn > VIGENCIA_FILTRO_MS) {
+            synchronized (this) {
+                f = filtro;
+                if (f == null || System.currentTimeMillis() - filtroCargadoEn > VIGENCIA_FILTRO_MS) {
+                    FiltroBloom nuevo = cargarFiltro();
+                    if (nuevo != null) {
+                        filtro = nuevo;
+                        filtroCargadoEn = System.currentTimeMillis();
+                        f = nuevo;
+                    }
+                }
+            }
+        }
+        return f;
+    }
+
+    private FiltroBloom cargarFiltro() {
+        List<String> dnis = new ArrayList<>();
+        try (Connection con = Conexion.conectar()) {
+            if (con == null) {
+                return null;
+            }
+            try (PreparedStatement ps = con.prepareStatement("SELECT dni FROM pacientes"); ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String dni = rs.getString(1);
+                    if (dni != null) {
+                        dnis.add(dni.trim());
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al cargar los DNI de pacientes: " + e.getMessage());
+            return null;
+        }
+        // Margen para los pacientes que se registren antes de la próxima recarga
+        FiltroBloom nuevo = new FiltroBloom(Math.max(1024, dnis.size() * 2), FALSOS_POSITIVOS);
+        for (String dni : dnis) {
+            nuevo.agregar(dni);
+        }
+        return nuevo;
+    }
+}
@@ -0,0 +1,203 @@
+package controlador;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Cache de resultados de consultas de lectura, compartida por todos los controladores.
+//
+// - La clave es el SQL más sus parámetros.
+// - Cada entrada se etiqueta con las tablas que lee. Al escribir en una tabla, el controlador llama a
+//   invalidar(tabla) y se descartan todas las entradas que la leen.
+// - Cada tabla lleva un número de generación: un resultado que se estaba leyendo mientras se invalidó
+//   su tabla no se guarda (así nunca queda en cache un dato anterior a la escritura).
+// - Desalojo por tamaño (LRU) y por antigüedad (TTL); el TTL acota lo que tarda en verse un cambio
+//   hecho desde otro equipo.
+//
+// Los valores guardados se comparten: quien los reciba no debe modificarlos (los controladores
+// devuelven copias de las listas).
+public final class CacheConsultas {
+
+    public static final String PACIENTES = "pacientes";
+    public static final String USUARIOS = "usuarios";
+    public static final String CITAS = "citas";
+    public static final String PROGRAMAS = "programas_preventivos";
+
+    private static final int CAPACIDAD = 200;
+    private static final long TTL_MS = 60 * 1000L;
+
+    private static final CacheConsultas INSTANCIA = new CacheConsultas();
+
+    // Lectura que se ejecuta solo si el resultado no está en cache
+    public interface Consulta<T> {
+
+        T ejecutar() throws SQLException;
+    }
+
+    private final LinkedHashMap<Clave, Entrada> entradas = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Long> generaciones = new HashMap<>();
+    private long aciertos;
+    private long fallos;
+    private long desalojos;
+    private long invalidaciones;
+
+    private CacheConsultas() {
+    }
+
+    public static CacheConsultas getInstancia() {
+        return INSTANCIA;
+    }
+
+    // Devuelve el resultado en cache o ejecuta la consulta y lo guarda. La consulta corre fuera del candado.
+    @SuppressWarnings("unchecked")
+    public <T> T obtener(String sql, List<?> parametros, Consulta<T> consulta, String... tablas) throws SQLException {
+        Clave clave = new Clave(sql, parametros);
+        long[] generacionesAntes;
+        synchronized (this) {
+            Entrada e = entradas.get(clave);
+            if (e != null && !e.vencida()) {
+                aciertos++;
+                return (T) e.valor;
+            }
+            if (e != null) {
+                entradas.remove(clave);
+                desalojos++;
+            }
+            fallos++;
+            generacionesAntes = generacionesDe(tablas);
+        }
+
+        T valor = consulta.ejecutar();
+
+        synchronized (this) {
+            // Si alguna tabla se invalidó mientras se leía, el resultado puede ser anterior a la escritura
+            if (Arrays.equals(generacionesAntes, generacionesDe(tablas))) {
+                entradas.put(clave, new Entrada(valor, tablas));
+                if (entradas.size() > CAPACIDAD) {
+                    Iterator<Entrada> it = entradas.values().iterator();
+                    it.next();
+                    it.remove();
+                    desalojos++;
+                }
+            }
+        }
+        return valor;
+    }
+
+    // Descarta las entradas que leen alguna de las tablas
+    public synchronized void invalidar(String... tablas) {
+        for (String t : tablas) {
+            generaciones.merge(t, 1L, Long::sum);
+        }
+        Iterator<Entrada> it = entradas.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().leeAlguna(tablas)) {
+                it.remove();
+                invalidaciones++;
+            }
+        }
+    }
+
+    public synchronized void limpiar() {
+        entradas.clear();
+    }
+
+    public synchronized int getTamano() {
+        return entradas.size();
+    }
+
+    public synchronized long getAciertos() {
+        return aciertos;
+    }
+
+    public synchronized long getFallos() {
+        return fallos;
+    }
+
+    public synchronized long getDesalojos() {
+        return desalojos;
+    }
+
+    public synchronized long getInvalidaciones() {
+        return invalidaciones;
+    }
+
+    // Aciertos sobre el total de lecturas (0 si todavía no hubo ninguna)
+    public synchronized double getTasaAciertos() {
+        long total = aciertos + fallos;
+        return total == 0 ? 0 : (double) aciertos / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("CacheConsultas[entradas=%d, aciertos=%d, fallos=%d, tasa=%.1f%%, desalojos=%d, invalidaciones=%d]",
+                entradas.size(), aciertos, fallos, getTasaAciertos() * 100, desalojos, invalidaciones);
+    }
+
+    private long[] generacionesDe(String[] tablas) {
+        long[] g = new long[tablas.length];
+        for (int i = 0; i < tablas.length; i++) {
+            g[i] = generaciones.getOrDefault(tablas[i], 0L);
+        }
+        return g;
+    }
+
+    private static final class Clave {
+
+        final String sql;
+        final List<Object> parametros;
+
+        Clave(String sql, List<?> parametros) {
+            this.sql = sql;
+            this.parametros = new ArrayList<>(parametros);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Clave)) {
+                return false;
+            }
+            Clave c = (Clave) o;
+            return sql.equals(c.sql) && parametros.equals(c.parametros);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sql, parametros);
+        }
+    }
+
+    private static final class Entrada {
+
+        final Object valor;
+        final String[] tablas;
+        final long vence;
+
+        Entrada(Object valor, String[] tablas) {
+            this.valor = valor;
+            this.tablas = tablas.clone();
+            this.vence = System.currentTimeMillis() + TTL_MS;
+        }
+
+        boolean vencida() {
+            return System.currentTimeMillis() > vence;
+        }
+
+        boolean leeAlguna(String[] otras) {
+            for (String t : tablas) {
+                for (String o : otras) {
+                    if (t.equals(o)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package controlador;
+
+import conexion.Conexion;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Catálogo de programas preventivos compartido por toda la aplicación.
+// Se carga una sola vez (al primer uso) y se mantiene en memoria; la tabla cambia muy pocas veces al año.
+// Llamar a refrescar() después de modificar programas_preventivos para que todos vean los cambios.
+public final class CatalogoProgramas {
+
+    private static final CatalogoProgramas INSTANCIA = new CatalogoProgramas();
+
+    private final AtomicLong versiones = new AtomicLong();
+    // Se reemplaza completa en cada carga; los lectores nunca ven un catálogo a medio armar
+    private volatile Instantanea actual;
+
+    private CatalogoProgramas() {
+    }
+
+    public static CatalogoProgramas getInstancia() {
+        return INSTANCIA;
+    }
+
+    // ID -> nombre, en orden alfabético de nombre_programa (el de los combos de programas)
+    public Map<Integer, String> getProgramas() {
+        return instantanea().porId;
+    }
+
+    public List<String> getNombres() {
+        return new ArrayList<>(instantanea().porId.values());
+    }
+
+    // null si el id no existe
+    public String getNombre(int idPrograma) {
+        return instantanea().porId.get(idPrograma);
+    }
+
+    // -1 si no existe (sin distinguir mayúsculas, igual que la intercalación de la base)
+    public int getId(String nombrePrograma) {
+        if (nombrePrograma == null) {
+            return -1;
+        }
+        Integer id = instantanea().porNombre.get(nombrePrograma.trim());
+        return id != null ? id : -1;
+    }
+
+    // Aumenta con cada recarga exitosa; permite a una vista saber si su copia quedó vieja
+    public long getVersion() {
+        return instantanea().version;
+    }
+
+    // Vuelve a leer la tabla. Si falla se conserva el catálogo anterior.
+    public synchronized void refrescar() {
+        Instantanea nueva = cargar();
+        if (nueva != null) {
+            actual = nueva;
+        }
+    }
+
+    private Instantanea instantanea() {
+        Instantanea i = actual;
+        if (i == null) {
+            synchronized (this) {
+                i = actual;
+                if (i == null) {
+                    i = cargar();
+                    if (i == null) {
+                        // Sin conexión: catálogo vacío, se reintenta en el próximo acceso
+                        return Instantanea.VACIA;
+                    }
+                    actual = i;
+                }
+            }
+        }
+        return i;
+    }
+
+    private Instantanea cargar() {
+        Map<Integer, String> porId = new LinkedHashMap<>();
+        Map<String, Integer> porNombre = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        String sql = "SELECT id_programa, nombre_programa FROM programas_preventivos ORDER BY nombre_programa ASC";
+        try (Connection con = Conexion.conectar()) {
+            if (con == null) {
+                return null;
+            }
+            try (PreparedStatement ps = con.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt(1);
+                    String nombre = rs.getString(2);
+                    porId.put(id, nombre);
+                    porNombre.put(nombre.trim(), id);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al cargar el catálogo de programas preventivos: " + e.getMessage());
+            return null;
+        }
+        return new Instantanea(porId, porNombre, versiones.incrementAndGet());
+    }
+
+    private static final class Instantanea {
+
+        static final Instantanea VACIA = new Instantanea(new LinkedHashMap<>(), new TreeMap<>(), 0);
+
+        final Map<Integer, String> porId;
+        final Map<String, Integer> porNombre;
+        final long version;
+
+        Instantanea(Map<Integer, String> porId, Map<String, Integer> porNombre, long version) {
+            this.porId = Collections.unmodifiableMap(porId);
+            this.porNombre = Collections.unmodifiableMap(porNombre);
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package controlador;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// Permite cancelar desde otro hilo una consulta que el controlador está ejecutando.
+// La vista crea una instancia por consulta, se la pasa al controlador y llama a cancelar()
+// cuando el resultado ya no le sirve (por ejemplo, el usuario cambió los filtros).
+public class ConsultaCancelable {
+
+    private volatile Statement sentencia;
+    private volatile boolean cancelada;
+
+    public void cancelar() {
+        cancelada = true;
+        Statement st = sentencia;
+        if (st != null) {
+            try {
+                st.cancel();
+            } catch (SQLException e) {
+                System.err.println("No se pudo cancelar la consulta: " + e.getMessage());
+            }
+        }
+    }
+
+    public boolean isCancelada() {
+        return cancelada;
+    }
+
+    // El controlador registra la sentencia antes de ejecutarla; si ya se pidió cancelar, no se ejecuta
+    void registrar(Statement st) throws SQLException {
+        sentencia = st;
+        if (cancelada) {
+            throw new SQLException("Consulta cancelada");
+        }
+    }
+
+    void liberar() {
+        sentencia = null;
+    }
+}
@@ -0,0 +1,128 @@
+package controlador;
+
+import conexion.Conexion;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+// Contadores de citas por programa, obstetra, mes y estado (tabla estadisticas_citas, migración V4).
+//
+// - ControladorCita llama a ajustar() con la misma conexión y transacción con la que registra una cita
+//   o cambia su estado: el contador y la cita se confirman o se deshacen juntos.
+// - Las estadísticas suman filas de esta tabla; el costo depende de la cantidad de combinaciones
+//   (programas x obstetras x meses x estados), no de la cantidad de citas.
+// - verificar() compara los contadores con las citas y reconstruir() los vuelve a calcular
+//   (por ejemplo, después de cambiar citas a mano en la base). verificarYReparar() hace ambas cosas;
+//   no corre sola: se pide desde EstadisticaVista.
+public final class ContadoresCitas {
+
+    private static final ContadoresCitas INSTANCIA = new ContadoresCitas();
+
+    private static final String SQL_AGRUPAR_CITAS = "SELECT id_programa, id_obstetra, YEAR(fecha_cita), MONTH(fecha_cita), estado_cita, COUNT(*) "
+            + "FROM citas GROUP BY id_programa, id_obstetra, YEAR(fecha_cita), MONTH(fecha_cita), estado_cita";
+
+    // Cada cita suma 1 y cada contador resta su cantidad: las combinaciones que no quedan en 0 no coinciden
+    private static final String SQL_DIFERENCIAS = "SELECT COUNT(*) FROM ("
+            + "SELECT id_programa, id_obstetra, anio, mes, estado_cita FROM ("
+            + "SELECT id_programa, id_obstetra, YEAR(fecha_cita) AS anio, MONTH(fecha_cita) AS mes, estado_cita, 1 AS cantidad FROM citas "
+            + "UNION ALL SELECT id_programa, id_obstetra, anio, mes, estado_cita, -cantidad FROM estadisticas_citas"
+            + ") t GROUP BY id_programa, id_obstetra, anio, mes, estado_cita HAVING SUM(cantidad) <> 0) d";
+
+    private ContadoresCitas() {
+    }
+
+    public static ContadoresCitas getInstancia() {
+        return INSTANCIA;
+    }
+
+    // Suma delta (+1 o -1) al contador de la cita. No confirma: la transacción es de quien llama.
+    static void ajustar(Connection con, int idPrograma, int idObstetra, Timestamp fechaCita, int estado, int delta) throws SQLException {
+        LocalDateTime fecha = fechaCita.toLocalDateTime();
+        String sqlSumar = "UPDATE estadisticas_citas SET cantidad = cantidad + ? "
+                + "WHERE id_programa = ? AND id_obstetra = ? AND anio = ? AND mes = ? AND estado_cita = ?";
+        String sqlInsertar = "INSERT INTO estadisticas_citas (cantidad, id_programa, id_obstetra, anio, mes, estado_cita) VALUES (?, ?, ?, ?, ?, ?)";
+        if (ejecutar(con, sqlSumar, delta, idPrograma, idObstetra, fecha.getYear(), fecha.getMonthValue(), estado) > 0) {
+            return;
+        }
+        try {
+            ejecutar(con, sqlInsertar, delta, idPrograma, idObstetra, fecha.getYear(), fecha.getMonthValue(), estado);
+        } catch (SQLException e) {
+            // 23xxx = clave duplicada: otra transacción creó el contador entre el UPDATE y el INSERT
+            if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                throw e;
+            }
+            ejecutar(con, sqlSumar, delta, idPrograma, idObstetra, fecha.getYear(), fecha.getMonthValue(), estado);
+        }
+    }
+
+    private static int ejecutar(Connection con, String sql, int... valores) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(sql)) {
+            for (int i = 0; i < valores.length; i++) {
+                ps.setInt(i + 1, valores[i]);
+            }
+            return ps.executeUpdate();
+        }
+    }
+
+    // Cantidad de combinaciones cuyo contador no coincide con las citas; -1 si no se pudo comparar.
+    // Una sola sentencia lee citas y contadores: una cita registrada entre dos lecturas separadas
+    // aparecería como diferencia aunque su contador se haya confirmado en la misma transacción.
+    public int verificar() {
+        try (Connection con = Conexion.conectar()) {
+            if (con == null) {
+                return -1;
+            }
+            try (PreparedStatement ps = con.prepareStatement(SQL_DIFERENCIAS); ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al verificar los contadores de citas: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    // Vuelve a calcular todos los contadores en una sola transacción
+    public boolean reconstruir() {
+        try (Connection con = Conexion.conectar()) {
+            if (con == null) {
+                return false;
+            }
+            con.setAutoCommit(false);
+            // SERIALIZABLE: una cita registrada durante la reconstrucción espera y se cuenta después
+            con.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            try {
+                try (PreparedStatement ps = con.prepareStatement("DELETE FROM estadisticas_citas")) {
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = con.prepareStatement(
+                        "INSERT INTO estadisticas_citas (id_programa, id_obstetra, anio, mes, estado_cita, cantidad) " + SQL_AGRUPAR_CITAS)) {
+                    ps.executeUpdate();
+                }
+                con.commit();
+                return true;
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al reconstruir los contadores de citas: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Tarea de mantenimiento (a pedido, desde la ventana de estadísticas): si algún contador no coincide,
+    // se reconstruyen todos. Devuelve las diferencias encontradas; -1 si no se pudo comparar.
+    public int verificarYReparar() {
+        int diferencias = verificar();
+        if (diferencias > 0) {
+            System.out.println("Contadores de citas desactualizados (" + diferencias + " combinaciones); se reconstruyen.");
+            if (reconstruir()) {
+                NotificadorCambios.getInstancia().registrarCambio(CacheConsultas.CITAS);
+            }
+        }
+        return diferencias;
+    }
+}
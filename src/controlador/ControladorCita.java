@@ -6,60 +6,195 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import conexion.Conexion;
 import modelo.Cita;
+import modelo.CitaDetalle;
+import modelo.Delta;
+import modelo.EstimacionAlcance;
+import modelo.ProgramaEstadistica;
+import modelo.ResultadoRegistroCita;
+import modelo.SerieTemporal;
 import modelo.Paciente;
+import modelo.PacienteResumen;
 import modelo.Usuario;
+import modelo.UsuarioResumen;
+import utilidades.HyperLogLog;
 
 
 public class ControladorCita {
 
+    // Tablas que leen los listados con nombres (para invalidar sus resultados en CacheConsultas)
+    private static final String[] TABLAS_DETALLE = {CacheConsultas.CITAS, CacheConsultas.PACIENTES, CacheConsultas.USUARIOS, CacheConsultas.PROGRAMAS};
+
+    // Solapamiento al pedir cambios desde una marca (ver listarCitasModificadasDesde)
+    static final long MARGEN_MARCA_MS = 5000L;
+
     // --- Métodos CRUD para Citas ---
     // 1. Registrar nueva cita
     public boolean registrarCita(Cita cita) {
-        // Validar si ya tiene cita del mismo programa en el mismo año
-        if (yaTieneCitaEnMismoProgramaEsteAnio(cita.getIdPaciente(), cita.getIdPrograma(), cita.getFechaCita())) {
-            System.err.println("El paciente ya tiene una cita para este programa en el mismo año.");
-            return false;
+        return registrarCitaAtomica(cita) == ResultadoRegistroCita.CREADA;
+    }
+
+    // 1b. Registro atómico: la validación (paciente activo, sin otra cita del mismo programa en el año)
+    // y el INSERT van en una sola sentencia dentro de una transacción SERIALIZABLE, así dos clientes
+    // no pueden registrar el duplicado a la vez. Deja el id generado en cita.setIdCita().
+    public ResultadoRegistroCita registrarCitaAtomica(Cita cita) {
+        for (int intento = 1; ; intento++) {
+            try {
+                return intentarRegistrarCita(cita);
+            } catch (SQLException e) {
+                // 40001 = la transacción fue elegida víctima de un interbloqueo; se reintenta una vez
+                if ("40001".equals(e.getSQLState()) && intento < 2) {
+                    continue;
+                }
+                System.err.println("Error al registrar cita: " + e.getMessage());
+                return ResultadoRegistroCita.ERROR;
+            }
         }
+    }
 
-        // Asegúrate de que el SQL use id_programa y estado_cita como INT
-        String sql = "INSERT INTO citas (id_obstetra, id_paciente, fecha_cita, id_programa, estado_cita, observaciones) VALUES (?, ?, ?, ?, ?, ?)";
-        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) { // Para obtener el ID generado si lo necesitas
-            ps.setInt(1, cita.getIdObstetra());
-            ps.setInt(2, cita.getIdPaciente());
-            ps.setTimestamp(3, cita.getFechaCita());
-            ps.setInt(4, cita.getIdPrograma()); // Usar ID del programa
-            ps.setInt(5, cita.getEstadoCita()); // Usar estado INT
-            ps.setString(6, cita.getObservaciones());
-
-            int filasAfectadas = ps.executeUpdate();
-            if (filasAfectadas > 0) {
-                // Si necesitas el ID de la cita recién creada
-                // ResultSet rs = ps.getGeneratedKeys();
-                // if (rs.next()) {
-                //     cita.setIdCita(rs.getInt(1));
-                // }
-                return true;
+    private ResultadoRegistroCita intentarRegistrarCita(Cita cita) throws SQLException {
+        // Rango [1 de enero, 1 de enero del año siguiente): comparación directa sobre fecha_cita, usa índice
+        LocalDateTime fecha = cita.getFechaCita().toLocalDateTime();
+        Timestamp inicioAnio = Timestamp.valueOf(LocalDateTime.of(fecha.getYear(), 1, 1, 0, 0));
+        Timestamp inicioSiguiente = Timestamp.valueOf(LocalDateTime.of(fecha.getYear() + 1, 1, 1, 0, 0));
+
+        String sql = "INSERT INTO citas (id_obstetra, id_paciente, fecha_cita, id_programa, estado_cita, observaciones) "
+                + "SELECT ?, ?, ?, ?, ?, ? "
+                + "WHERE EXISTS (SELECT 1 FROM pacientes WHERE id = ? AND estado = 1) "
+                + "AND NOT EXISTS (SELECT 1 FROM citas WHERE id_paciente = ? AND id_programa = ? AND fecha_cita >= ? AND fecha_cita < ?)";
+        String sqlPaciente = "SELECT COUNT(*) FROM pacientes WHERE id = ? AND estado = 1";
+
+        try (Connection con = Conexion.conectar()) {
+            if (con == null) {
+                throw new SQLException("No hay conexión con la base de datos.");
+            }
+            con.setAutoCommit(false);
+            con.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+            try {
+                ResultadoRegistroCita resultado;
+                try (PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setInt(1, cita.getIdObstetra());
+                    ps.setInt(2, cita.getIdPaciente());
+                    ps.setTimestamp(3, cita.getFechaCita());
+                    ps.setInt(4, cita.getIdPrograma()); // Usar ID del programa
+                    ps.setInt(5, cita.getEstadoCita()); // Usar estado INT
+                    ps.setString(6, cita.getObservaciones());
+                    ps.setInt(7, cita.getIdPaciente());
+                    ps.setInt(8, cita.getIdPaciente());
+                    ps.setInt(9, cita.getIdPrograma());
+                    ps.setTimestamp(10, inicioAnio);
+                    ps.setTimestamp(11, inicioSiguiente);
+
+                    if (ps.executeUpdate() > 0) {
+                        try (ResultSet rs = ps.getGeneratedKeys()) {
+                            if (rs.next()) {
+                                cita.setIdCita(rs.getInt(1));
+                            }
+                        }
+                        resultado = ResultadoRegistroCita.CREADA;
+                        ContadoresCitas.ajustar(con, cita.getIdPrograma(), cita.getIdObstetra(), cita.getFechaCita(), cita.getEstadoCita(), 1);
+                        if (cita.getEstadoCita() == Cita.ESTADO_ATENDIDO) {
+                            AlcancePacientes.registrarAtencion(con, cita.getIdPrograma(), cita.getIdObstetra(), cita.getFechaCita(), cita.getIdPaciente());
+                        }
+                    } else {
+                        resultado = null;
+                    }
+                }
+
+                if (resultado == null) {
+                    // No se insertó: distinguir el motivo dentro de la misma transacción
+                    try (PreparedStatement ps = con.prepareStatement(sqlPaciente)) {
+                        ps.setInt(1, cita.getIdPaciente());
+                        try (ResultSet rs = ps.executeQuery()) {
+                            boolean pacienteValido = rs.next() && rs.getInt(1) > 0;
+                            resultado = pacienteValido ? ResultadoRegistroCita.DUPLICADA : ResultadoRegistroCita.PACIENTE_INVALIDO;
+                        }
+                    }
+                }
+                con.commit();
+                if (resultado == ResultadoRegistroCita.CREADA) {
+                    NotificadorCambios.getInstancia().registrarCambio(CacheConsultas.CITAS);
+                }
+                return resultado;
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
             }
-            return false;
-        } catch (SQLException e) {
-            System.err.println("Error al registrar cita: " + e.getMessage());
-            return false;
         }
     }
 
-    // 2. Modificar estado de cita
+    // 2. Modificar estado de cita. El UPDATE y los contadores de estadisticas_citas van en una transacción;
+    // el UPDATE exige el estado leído, así un cambio simultáneo desde otro equipo no se cuenta dos veces.
     public boolean modificarEstadoCita(int idCita, int nuevoEstado) { // nuevoEstado ahora es int
-        String sql = "UPDATE citas SET estado_cita = ? WHERE id_cita = ?";
-        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setInt(1, nuevoEstado); // Usar estado INT
-            ps.setInt(2, idCita);
-            return ps.executeUpdate() > 0;
+        String sqlLeer = "SELECT id_programa, id_obstetra, fecha_cita, estado_cita, id_paciente FROM citas WHERE id_cita = ?";
+        String sql = "UPDATE citas SET estado_cita = ? WHERE id_cita = ? AND estado_cita = ?";
+        try (Connection con = Conexion.conectar()) {
+            if (con == null) {
+                return false;
+            }
+            con.setAutoCommit(false);
+            try {
+                for (int intento = 1; intento <= 3; intento++) {
+                    int idPrograma;
+                    int idObstetra;
+                    Timestamp fechaCita;
+                    int estadoAnterior;
+                    int idPaciente;
+                    try (PreparedStatement ps = con.prepareStatement(sqlLeer)) {
+                        ps.setInt(1, idCita);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            if (!rs.next()) {
+                                con.rollback();
+                                return false;
+                            }
+                            idPrograma = rs.getInt(1);
+                            idObstetra = rs.getInt(2);
+                            fechaCita = rs.getTimestamp(3);
+                            estadoAnterior = rs.getInt(4);
+                            idPaciente = rs.getInt(5);
+                        }
+                    }
+                    if (estadoAnterior == nuevoEstado) {
+                        con.rollback();
+                        return true;
+                    }
+                    try (PreparedStatement ps = con.prepareStatement(sql)) {
+                        ps.setInt(1, nuevoEstado); // Usar estado INT
+                        ps.setInt(2, idCita);
+                        ps.setInt(3, estadoAnterior);
+                        if (ps.executeUpdate() == 0) {
+                            continue; // Otro equipo cambió el estado entre la lectura y el UPDATE
+                        }
+                    }
+                    ContadoresCitas.ajustar(con, idPrograma, idObstetra, fechaCita, estadoAnterior, -1);
+                    ContadoresCitas.ajustar(con, idPrograma, idObstetra, fechaCita, nuevoEstado, 1);
+                    if (nuevoEstado == Cita.ESTADO_ATENDIDO) {
+                        AlcancePacientes.registrarAtencion(con, idPrograma, idObstetra, fechaCita, idPaciente);
+                    }
+                    con.commit();
+                    NotificadorCambios.getInstancia().registrarCambio(CacheConsultas.CITAS);
+                    return true;
+                }
+                con.rollback();
+                return false;
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            }
         } catch (SQLException e) {
             System.err.println("Error al modificar estado de cita: " + e.getMessage());
             return false;
@@ -92,8 +227,8 @@ public class ControladorCita {
     }
 
     // 4. Listar citas pendientes (ahora con JOIN para nombres de programas, pacientes y obstetras)
-    public List<Map<String, Object>> listarCitasConDetalles(int estadoFiltro) {
-        List<Map<String, Object>> listaCitasConDetalles = new ArrayList<>();
+    public List<CitaDetalle> listarCitasConDetalles(int estadoFiltro) {
+        List<CitaDetalle> listaCitasConDetalles = new ArrayList<>();
         String sql = "SELECT c.id_cita, c.fecha_cita, c.estado_cita, c.observaciones, c.fecha_registro, "
                 + "p.dni AS dni_paciente, p.nombre_completo AS nombre_paciente, "
                 + "u.nombre_completo AS nombre_obstetra, "
@@ -118,18 +253,7 @@ public class ControladorCita {
 
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    Map<String, Object> citaDetalle = new HashMap<>();
-                    citaDetalle.put("id_cita", rs.getInt("id_cita"));
-                    citaDetalle.put("fecha_cita", rs.getTimestamp("fecha_cita"));
-                    citaDetalle.put("dni_paciente", rs.getString("dni_paciente"));
-                    citaDetalle.put("nombre_paciente", rs.getString("nombre_paciente"));
-                    citaDetalle.put("nombre_programa_preventivo", rs.getString("nombre_programa_preventivo"));
-                    citaDetalle.put("estado_cita", rs.getInt("estado_cita"));
-                    citaDetalle.put("observaciones", rs.getString("observaciones"));
-                    citaDetalle.put("fecha_registro", rs.getTimestamp("fecha_registro"));
-                    citaDetalle.put("nombre_obstetra", rs.getString("nombre_obstetra"));
-
-                    listaCitasConDetalles.add(citaDetalle);
+                    listaCitasConDetalles.add(mapearCitaDetalle(rs));
                 }
             }
         } catch (SQLException e) {
@@ -138,6 +262,149 @@ public class ControladorCita {
         return listaCitasConDetalles;
     }
 
+    // 4b. Listado paginado por keyset (fecha_cita, id_cita): cada página cuesta lo mismo
+    // sin importar cuánto historial exista. despuesDe = última fila de la página anterior
+    // (null para la primera página).
+    public List<CitaDetalle> listarCitasPagina(int estadoFiltro, CitaDetalle despuesDe, int tamanoPagina) {
+        StringBuilder sql = new StringBuilder("SELECT TOP (?) c.id_cita, c.fecha_cita, c.estado_cita, c.observaciones, c.fecha_registro, "
+                + "p.dni AS dni_paciente, p.nombre_completo AS nombre_paciente, "
+                + "u.nombre_completo AS nombre_obstetra, "
+                + "pp.nombre_programa AS nombre_programa_preventivo "
+                + "FROM citas c "
+                + "JOIN pacientes p ON c.id_paciente = p.id "
+                + "JOIN usuarios u ON c.id_obstetra = u.id "
+                + "JOIN programas_preventivos pp ON c.id_programa = pp.id_programa "
+                + "WHERE 1=1 ");
+
+        if (estadoFiltro != -1) {
+            sql.append("AND c.estado_cita = ? ");
+        }
+        if (despuesDe != null) {
+            // Seek sobre (fecha_cita, id_cita); id_cita desempata citas a la misma hora
+            sql.append("AND (c.fecha_cita > ? OR (c.fecha_cita = ? AND c.id_cita > ?)) ");
+        }
+        sql.append("ORDER BY c.fecha_cita ASC, c.id_cita ASC");
+
+        // Las páginas ya leídas (al reabrir GestionCitasVista) salen de CacheConsultas
+        List<Object> parametros = despuesDe != null
+                ? Arrays.asList(tamanoPagina, estadoFiltro, despuesDe.getFechaCita(), despuesDe.getIdCita())
+                : Arrays.asList(tamanoPagina, estadoFiltro);
+        try {
+            return new ArrayList<>(CacheConsultas.getInstancia().obtener(sql.toString(), parametros,
+                    () -> leerPaginaCitas(sql.toString(), estadoFiltro, despuesDe, tamanoPagina), TABLAS_DETALLE));
+        } catch (SQLException e) {
+            System.err.println("Error al listar página de citas: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private List<CitaDetalle> leerPaginaCitas(String sql, int estadoFiltro, CitaDetalle despuesDe, int tamanoPagina) throws SQLException {
+        List<CitaDetalle> pagina = new ArrayList<>();
+        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
+            int i = 1;
+            ps.setInt(i++, tamanoPagina);
+            if (estadoFiltro != -1) {
+                ps.setInt(i++, estadoFiltro);
+            }
+            if (despuesDe != null) {
+                ps.setTimestamp(i++, despuesDe.getFechaCita());
+                ps.setTimestamp(i++, despuesDe.getFechaCita());
+                ps.setInt(i++, despuesDe.getIdCita());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    pagina.add(mapearCitaDetalle(rs));
+                }
+            }
+        }
+        return pagina;
+    }
+
+    // 4c. Una sola cita con sus nombres (para agregarla a la tabla tras registrarla). null si no existe.
+    public CitaDetalle obtenerCitaDetalle(int idCita) {
+        String sql = "SELECT c.id_cita, c.fecha_cita, c.estado_cita, c.observaciones, c.fecha_registro, "
+                + "p.dni AS dni_paciente, p.nombre_completo AS nombre_paciente, "
+                + "u.nombre_completo AS nombre_obstetra, "
+                + "pp.nombre_programa AS nombre_programa_preventivo "
+                + "FROM citas c "
+                + "JOIN pacientes p ON c.id_paciente = p.id "
+                + "JOIN usuarios u ON c.id_obstetra = u.id "
+                + "JOIN programas_preventivos pp ON c.id_programa = pp.id_programa "
+                + "WHERE c.id_cita = ?";
+        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, idCita);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return mapearCitaDetalle(rs);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al obtener detalle de cita: " + e.getMessage());
+        }
+        return null;
+    }
+
+    // 4d. Refresco incremental (columna fecha_modificacion, migración V3).
+    // Marca actual de la tabla: leerla antes de la primera página y pasarla luego a listarCitasModificadasDesde.
+    public Timestamp obtenerMarcaCitas() {
+        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement("SELECT MAX(fecha_modificacion) FROM citas");
+                ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getTimestamp(1) : null;
+        } catch (SQLException e) {
+            System.err.println("Error al obtener la marca de modificación de citas: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Citas insertadas o modificadas desde la marca (con MARGEN_MARCA_MS de solapamiento, por las transacciones
+    // que confirman tarde con una hora anterior; aplicar dos veces la misma fila no cambia nada).
+    // Devuelve null si la consulta falla, para que la vista recargue completo.
+    public Delta<CitaDetalle> listarCitasModificadasDesde(Timestamp marca) {
+        String sql = "SELECT c.id_cita, c.fecha_cita, c.estado_cita, c.observaciones, c.fecha_registro, "
+                + "p.dni AS dni_paciente, p.nombre_completo AS nombre_paciente, "
+                + "u.nombre_completo AS nombre_obstetra, "
+                + "pp.nombre_programa AS nombre_programa_preventivo, c.fecha_modificacion "
+                + "FROM citas c "
+                + "JOIN pacientes p ON c.id_paciente = p.id "
+                + "JOIN usuarios u ON c.id_obstetra = u.id "
+                + "JOIN programas_preventivos pp ON c.id_programa = pp.id_programa "
+                + "WHERE c.fecha_modificacion >= ? ORDER BY c.fecha_modificacion ASC";
+        List<CitaDetalle> cambios = new ArrayList<>();
+        Timestamp nueva = marca;
+        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setTimestamp(1, new Timestamp(marca.getTime() - MARGEN_MARCA_MS));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    cambios.add(mapearCitaDetalle(rs));
+                    Timestamp modificada = rs.getTimestamp(10);
+                    if (modificada.after(nueva)) {
+                        nueva = modificada;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al listar citas modificadas: " + e.getMessage());
+            return null;
+        }
+        return new Delta<>(cambios, nueva);
+    }
+
+    // Convierte la fila actual en CitaDetalle. Lee por índice, en el orden del SELECT de los listados:
+    // id_cita, fecha_cita, estado_cita, observaciones, fecha_registro, dni_paciente, nombre_paciente, nombre_obstetra, nombre_programa
+    private CitaDetalle mapearCitaDetalle(ResultSet rs) throws SQLException {
+        return new CitaDetalle(
+                rs.getInt(1),
+                rs.getTimestamp(2),
+                rs.getInt(3),
+                rs.getString(4),
+                rs.getTimestamp(5),
+                rs.getString(6),
+                rs.getString(7),
+                rs.getString(8),
+                rs.getString(9)
+        );
+    }
+
     // NUEVO MÉTODO: Obtener el estado actual de una cita por su ID
     public int obtenerEstadoCita(int idCita) {
         String sql = "SELECT estado_cita FROM citas WHERE id_cita = ?";
@@ -155,101 +422,72 @@ public class ControladorCita {
     }
 
     // 5. Listar citas por obstetra (para el manejo de sesiones) con detalles
-    public List<Map<String, Object>> listarCitasPorObstetraConDetalles(int idObstetra) {
-        List<Map<String, Object>> listaCitasConDetalles = new ArrayList<>();
+    // Pasa por CacheConsultas: la agenda se vuelve a pedir cada vez que se abre una ventana
+    public List<CitaDetalle> listarCitasPorObstetraConDetalles(int idObstetra) {
         String sql = "SELECT c.id_cita, c.fecha_cita, c.estado_cita, c.observaciones, c.fecha_registro, "
                 + "p.dni AS dni_paciente, p.nombre_completo AS nombre_paciente, "
+                + "u.nombre_completo AS nombre_obstetra, "
                 + "pp.nombre_programa AS nombre_programa_preventivo "
                 + "FROM citas c "
-                + "JOIN pacientes p ON c.id_paciente = p.id_paciente "
+                + "JOIN pacientes p ON c.id_paciente = p.id "
+                + "JOIN usuarios u ON c.id_obstetra = u.id "
                 + "JOIN programas_preventivos pp ON c.id_programa = pp.id_programa "
                 + "WHERE c.id_obstetra = ? ORDER BY c.fecha_cita DESC";
 
-        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setInt(1, idObstetra);
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                Map<String, Object> citaDetalle = new HashMap<>();
-                citaDetalle.put("id_cita", rs.getInt("id_cita"));
-                citaDetalle.put("fecha_cita", rs.getTimestamp("fecha_cita"));
-                citaDetalle.put("dni_paciente", rs.getString("dni_paciente"));
-                citaDetalle.put("nombre_paciente", rs.getString("nombre_paciente"));
-                citaDetalle.put("nombre_programa_preventivo", rs.getString("nombre_programa_preventivo"));
-                citaDetalle.put("estado_cita", rs.getInt("estado_cita"));
-                citaDetalle.put("observaciones", rs.getString("observaciones"));
-                citaDetalle.put("fecha_registro", rs.getTimestamp("fecha_registro"));
-
-                listaCitasConDetalles.add(citaDetalle);
-            }
+        try {
+            return new ArrayList<>(CacheConsultas.getInstancia().obtener(sql, List.of(idObstetra), () -> {
+                List<CitaDetalle> listaCitasConDetalles = new ArrayList<>();
+                try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
+                    ps.setInt(1, idObstetra);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            listaCitasConDetalles.add(mapearCitaDetalle(rs));
+                        }
+                    }
+                }
+                return listaCitasConDetalles;
+            }, TABLAS_DETALLE));
         } catch (SQLException e) {
             System.err.println("Error al listar citas por obstetra con detalles: " + e.getMessage());
+            return new ArrayList<>();
         }
-        return listaCitasConDetalles;
     }
 
     // --- Métodos Auxiliares para la Vista (para autocompletado y mostrar nombres) ---
-    // Obtener ID de paciente por DNI
+    // Obtener ID de paciente por DNI (confirmado contra la base si no está en la cache)
     public int obtenerIdPacientePorDNI(String dni) {
-        int id = -1;
-        String sql = "SELECT id FROM pacientes WHERE dni = ?";
-        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setString(1, dni);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                id = rs.getInt("id");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error al obtener ID de paciente por DNI: " + e.getMessage());
-        }
-        return id;
+        PacienteResumen p = BuscadorPacientes.getInstancia().buscarPorDniVerificado(dni);
+        return p != null ? p.getId() : -1;
+    }
+
+    // Id, nombre y DNI en una sola búsqueda, para autocompletar mientras se escribe el DNI
+    public PacienteResumen buscarPacientePorDni(String dni) {
+        return BuscadorPacientes.getInstancia().buscarPorDni(dni);
     }
 
     // Obtener Nombre del Paciente por ID
+    // Los métodos por id son atajos de ResolutorNombres. Los listados de citas traen los nombres en su propio JOIN.
     public String obtenerNombrePaciente(int idPaciente) {
-        String nombre = null;
-        String sql = "SELECT nombre_completo FROM pacientes WHERE id = ?";
-        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setInt(1, idPaciente);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                nombre = rs.getString("nombre_completo");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error al obtener nombre de paciente: " + e.getMessage());
-        }
-        return nombre;
+        ResolutorNombres resolutor = new ResolutorNombres();
+        CompletableFuture<String> nombre = resolutor.nombrePaciente(idPaciente);
+        resolutor.despachar();
+        return nombre.join();
     }
 
     // Obtener DNI del Paciente por ID
     public String obtenerDNIpaciente(int idPaciente) {
-        String dni = null;
-        String sql = "SELECT dni FROM pacientes WHERE id = ?";
-        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setInt(1, idPaciente);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                dni = rs.getString("dni");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error al obtener DNI de paciente: " + e.getMessage());
-        }
-        return dni;
+        ResolutorNombres resolutor = new ResolutorNombres();
+        CompletableFuture<String> dni = resolutor.dniPaciente(idPaciente);
+        resolutor.despachar();
+        return dni.join();
     }
 
     // Obtener Nombre del Obstetra por ID (desde la tabla usuarios)
     public String obtenerNombreObstetra(int idObstetra) {
-        String nombre = null;
-        String sql = "SELECT nombre_completo FROM usuarios WHERE id = ?";
-        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setInt(1, idObstetra);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                nombre = rs.getString("nombre_completo");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error al obtener nombre de obstetra: " + e.getMessage());
-        }
-        return nombre;
+        ResolutorNombres resolutor = new ResolutorNombres();
+        CompletableFuture<String> nombre = resolutor.nombreObstetra(idObstetra);
+        resolutor.despachar();
+        return nombre.join();
     }
 
     // Verificar si el DNI del paciente existe
@@ -258,45 +496,29 @@ public class ControladorCita {
     }
 
     // --- Métodos para Programas Preventivos ---
+    // Se leen del CatalogoProgramas en memoria, sin ir a la base en cada llamada.
     // Obtener todos los programas preventivos (ID y Nombre)
     public Map<Integer, String> obtenerProgramasPreventivos() {
-        Map<Integer, String> programas = new HashMap<>();
-        String sql = "SELECT id_programa, nombre_programa FROM programas_preventivos ORDER BY nombre_programa ASC";
-        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                programas.put(rs.getInt("id_programa"), rs.getString("nombre_programa"));
-            }
-        } catch (SQLException e) {
-            System.err.println("Error al obtener programas preventivos: " + e.getMessage());
-        }
-        return programas;
+        return new LinkedHashMap<>(CatalogoProgramas.getInstancia().getProgramas());
     }
 
     // Obtener el nombre de un programa por su ID
     public String obtenerNombrePrograma(int idPrograma) {
-        String nombre = null;
-        String sql = "SELECT nombre_programa FROM programas_preventivos WHERE id_programa = ?";
-        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setInt(1, idPrograma);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                nombre = rs.getString("nombre_programa");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error al obtener nombre de programa por ID: " + e.getMessage());
-        }
-        return nombre;
+        return CatalogoProgramas.getInstancia().getNombre(idPrograma);
     }
 
     // Validación: verificar si el paciente ya tiene una cita del mismo programa en el mismo año
     public boolean yaTieneCitaEnMismoProgramaEsteAnio(int idPaciente, int idPrograma, Timestamp fechaCita) {
         boolean existe = false;
-        String sql = "SELECT COUNT(*) FROM citas WHERE id_paciente = ? AND id_programa = ? AND YEAR(fecha_cita) = YEAR(?)";
+        // Rango del año completo en lugar de YEAR(fecha_cita) para que el índice sobre fecha_cita sea utilizable
+        String sql = "SELECT COUNT(*) FROM citas WHERE id_paciente = ? AND id_programa = ? AND fecha_cita >= ? AND fecha_cita < ?";
+        int anio = fechaCita.toLocalDateTime().getYear();
 
         try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
             ps.setInt(1, idPaciente);
             ps.setInt(2, idPrograma);
-            ps.setTimestamp(3, fechaCita);
+            ps.setTimestamp(3, Timestamp.valueOf(LocalDateTime.of(anio, 1, 1, 0, 0)));
+            ps.setTimestamp(4, Timestamp.valueOf(LocalDateTime.of(anio + 1, 1, 1, 0, 0)));
 
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
@@ -312,46 +534,27 @@ public class ControladorCita {
 
     // Obtener el ID de un programa por su nombre (útil para la vista si se selecciona por nombre)
     public int obtenerIdProgramaPorNombre(String nombrePrograma) {
-        int id = -1;
-        String sql = "SELECT id_programa FROM programas_preventivos WHERE nombre_programa = ?";
-        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
-            ps.setString(1, nombrePrograma);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                id = rs.getInt("id_programa");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error al obtener ID de programa por nombre: " + e.getMessage());
-        }
-        return id;
+        return CatalogoProgramas.getInstancia().getId(nombrePrograma);
     }
 
     //todo lo de estadisticas ------------------------------------------------------------------------------->>>>>>
-    public List<Map<String, Object>> obtenerEstadisticasPorPrograma() {
-        List<Map<String, Object>> lista = new ArrayList<>();
+    // Las estadísticas suman los contadores de estadisticas_citas (ContadoresCitas) en lugar de recorrer citas
+    public List<ProgramaEstadistica> obtenerEstadisticasPorPrograma() {
+        List<ProgramaEstadistica> lista = new ArrayList<>();
         String sql = """
         SELECT 
             pp.nombre_programa,
-            COUNT(c.id_cita) AS total,
-            SUM(CASE WHEN c.estado_cita = 2 THEN 1 ELSE 0 END) AS atendidas
+            COALESCE(SUM(e.cantidad), 0) AS total,
+            COALESCE(SUM(CASE WHEN e.estado_cita = 2 THEN e.cantidad ELSE 0 END), 0) AS atendidas
         FROM programas_preventivos pp
-        LEFT JOIN citas c ON pp.id_programa = c.id_programa
+        LEFT JOIN estadisticas_citas e ON pp.id_programa = e.id_programa
         GROUP BY pp.nombre_programa
     """;
 
         try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
-                Map<String, Object> map = new HashMap<>();
-                int total = rs.getInt("total");
-                int atendidas = rs.getInt("atendidas");
-                double porcentaje = total == 0 ? 0 : (atendidas * 100.0 / total);
-
-                map.put("programa", rs.getString("nombre_programa"));
-                map.put("total", total);
-                map.put("atendidas", atendidas);
-                map.put("porcentaje", porcentaje);
-
-                lista.add(map);
+                // nombre_programa, total, atendidas
+                lista.add(new ProgramaEstadistica(rs.getString(1), rs.getInt(2), rs.getInt(3)));
             }
         } catch (SQLException e) {
             System.err.println("Error al obtener estadísticas por programa: " + e.getMessage());
@@ -359,117 +562,255 @@ public class ControladorCita {
         return lista;
     }
 
-    //
-    public List<Map<String, Object>> obtenerEstadisticasPorObstetra() {
-        List<Map<String, Object>> lista = new ArrayList<>();
-        String sql = """
-        SELECT 
-            u.nombre_completo,
-            COUNT(c.id_cita) AS total,
-            SUM(CASE WHEN c.estado_cita = 2 THEN 1 ELSE 0 END) AS atendidas
-        FROM usuarios u
-        LEFT JOIN citas c ON u.id = c.id_obstetra
-        WHERE u.rol = 'OBSTETRA'
-        GROUP BY u.nombre_completo
-    """;
-
-        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                Map<String, Object> map = new HashMap<>();
-                int total = rs.getInt("total");
-                int atendidas = rs.getInt("atendidas");
-                double porcentaje = total == 0 ? 0 : (atendidas * 100.0 / total);
+    // Estadísticas por programa entre dos fechas cualesquiera (inclusive; null = sin límite), con los contadores
+    // diarios del cubo: cada rango se responde en memoria sin importar su largo.
+    // Sin obstetra ni fechas alcanzan los contadores de estadisticas_citas: no hace falta armar el cubo.
+    // cancelacion (null = no se cancela) corta el recorrido de citas si la consulta tiene que armar el cubo.
+    public List<ProgramaEstadistica> obtenerEstadisticasPorProgramaEnRango(String dniObstetra, List<String> programasSeleccionados, LocalDate desde, LocalDate hasta,
+            ConsultaCancelable cancelacion) {
+        if ((dniObstetra == null || dniObstetra.isEmpty()) && desde == null && hasta == null) {
+            return estadisticasDeContadores(programasSeleccionados);
+        }
+        return estadisticasDelCubo(dniObstetra, programasSeleccionados, desde != null || hasta != null,
+                filtro -> CuboCitas.getInstancia().agruparPorRango(filtro, desde, hasta, CuboCitas.Dimension.PROGRAMA, cancelacion));
+    }
 
-                map.put("obstetra", rs.getString("nombre_completo"));
-                map.put("total", total);
-                map.put("atendidas", atendidas);
-                map.put("porcentaje", porcentaje);
+    // Los programas marcados (todos si no hay ninguno), en el mismo orden y con ceros, igual que el cubo sin filtros
+    private List<ProgramaEstadistica> estadisticasDeContadores(List<String> programasSeleccionados) {
+        Map<String, ProgramaEstadistica> porNombre = new HashMap<>();
+        for (ProgramaEstadistica fila : obtenerEstadisticasPorPrograma()) {
+            porNombre.put(fila.getPrograma(), fila);
+        }
+        List<String> programas = programasSeleccionados != null && !programasSeleccionados.isEmpty()
+                ? programasSeleccionados : CatalogoProgramas.getInstancia().getNombres();
+        List<ProgramaEstadistica> lista = new ArrayList<>();
+        for (String programa : programas) {
+            ProgramaEstadistica fila = porNombre.get(programa);
+            lista.add(fila != null ? fila : new ProgramaEstadistica(programa, 0, 0));
+        }
+        return lista;
+    }
 
-                lista.add(map);
+    private List<ProgramaEstadistica> estadisticasDelCubo(String dniObstetra, List<String> programasSeleccionados, boolean hayFecha,
+            Function<CuboCitas.Filtro, Map<Integer, CuboCitas.Medidas>> consulta) {
+        CuboCitas.Filtro filtro = new CuboCitas.Filtro();
+        Integer idObstetra = idObstetraParaFiltro(dniObstetra);
+        boolean hayDni = idObstetra != null;
+        if (hayDni) {
+            if (idObstetra < 0) {
+                return new ArrayList<>();
+            }
+            filtro.con(CuboCitas.Dimension.OBSTETRA, idObstetra);
+        }
+        List<String> programas = programasSeleccionados != null && !programasSeleccionados.isEmpty()
+                ? programasSeleccionados : CatalogoProgramas.getInstancia().getNombres();
+        List<Integer> idsProgramas = new ArrayList<>();
+        for (String programa : programas) {
+            idsProgramas.add(obtenerIdProgramaPorNombre(programa));
+        }
+        filtro.con(CuboCitas.Dimension.PROGRAMA, idsProgramas);
+
+        Map<Integer, CuboCitas.Medidas> porPrograma = consulta.apply(filtro);
+        List<ProgramaEstadistica> lista = new ArrayList<>();
+        for (int i = 0; i < programas.size(); i++) {
+            CuboCitas.Medidas m = porPrograma.get(idsProgramas.get(i));
+            if (m != null) {
+                lista.add(new ProgramaEstadistica(programas.get(i), m.getTotal(), m.getAtendidas()));
+            } else if (!hayDni && !hayFecha) {
+                lista.add(new ProgramaEstadistica(programas.get(i), 0, 0));
             }
-        } catch (SQLException e) {
-            System.err.println("Error al obtener estadísticas por obstetra: " + e.getMessage());
         }
         return lista;
-        
     }
 
-  public List<Map<String, Object>> obtenerEstadisticasPorProgramaFiltrado(String dniObstetra, List<String> programasSeleccionados, java.util.Date fechaSeleccionada) {
-    List<Map<String, Object>> lista = new ArrayList<>();
-    StringBuilder sql = new StringBuilder("""
-        SELECT 
-            pp.nombre_programa,
-            COUNT(c.id_cita) AS total,
-            SUM(CASE WHEN c.estado_cita = 2 THEN 1 ELSE 0 END) AS atendidas
-        FROM programas_preventivos pp
-        LEFT JOIN citas c 
-            ON pp.id_programa = c.id_programa
-        LEFT JOIN usuarios u 
-            ON c.id_obstetra = u.id
-        WHERE 1=1
-    """);
-
-    // Filtro por DNI si se especifica
-    if (dniObstetra != null && !dniObstetra.isEmpty()) {
-        sql.append(" AND u.dni = ? ");
+    // --- Alcance: pacientes distintos atendidos (aproximado, AlcancePacientes) ---
+    // Una estimación por programa marcado con atenciones en los meses que tocan el rango desde..hasta (null = sin límite).
+    // Los bocetos son mensuales: el rango se redondea a meses completos.
+    public List<EstimacionAlcance> obtenerAlcancePorPrograma(String dniObstetra, List<String> programasSeleccionados, LocalDate desde, LocalDate hasta,
+            ConsultaCancelable cancelacion) {
+        List<EstimacionAlcance> lista = new ArrayList<>();
+        Map<Integer, HyperLogLog> bocetos = bocetosAlcance(dniObstetra, desde, hasta, cancelacion);
+        for (String programa : programasParaAlcance(programasSeleccionados)) {
+            HyperLogLog boceto = bocetos.get(obtenerIdProgramaPorNombre(programa));
+            if (boceto != null) {
+                lista.add(new EstimacionAlcance(programa, boceto.estimar(), boceto.getErrorRelativo()));
+            }
+        }
+        return lista;
     }
 
-    // Filtro por programas seleccionados
-    if (programasSeleccionados != null && !programasSeleccionados.isEmpty()) {
-        String placeholders = String.join(", ", programasSeleccionados.stream().map(p -> "?").toList());
-        sql.append(" AND pp.nombre_programa IN (").append(placeholders).append(") ");
+    // Pacientes distintos entre todos los programas marcados: se unen los bocetos (no se suman las estimaciones,
+    // un paciente atendido en dos programas cuenta una vez). null si no hubo atenciones.
+    public EstimacionAlcance obtenerAlcanceTotal(String dniObstetra, List<String> programasSeleccionados, LocalDate desde, LocalDate hasta,
+            ConsultaCancelable cancelacion) {
+        Map<Integer, HyperLogLog> bocetos = bocetosAlcance(dniObstetra, desde, hasta, cancelacion);
+        HyperLogLog union = null;
+        for (String programa : programasParaAlcance(programasSeleccionados)) {
+            HyperLogLog boceto = bocetos.get(obtenerIdProgramaPorNombre(programa));
+            if (boceto != null) {
+                if (union == null) {
+                    union = boceto.copia();
+                } else {
+                    union.unir(boceto);
+                }
+            }
+        }
+        return union != null ? new EstimacionAlcance("Total", union.estimar(), union.getErrorRelativo()) : null;
     }
 
-    // Filtro por MES y AÑO (no por día)
-    if (fechaSeleccionada != null) {
-        sql.append(" AND MONTH(c.fecha_cita) = ? AND YEAR(c.fecha_cita) = ? ");
+    private Map<Integer, HyperLogLog> bocetosAlcance(String dniObstetra, LocalDate desde, LocalDate hasta, ConsultaCancelable cancelacion) {
+        Integer idObstetra = idObstetraParaFiltro(dniObstetra);
+        if (idObstetra != null && idObstetra < 0) {
+            return new HashMap<>();
+        }
+        try {
+            return AlcancePacientes.getInstancia().bocetosPorPrograma(idObstetra,
+                    desde != null ? YearMonth.from(desde) : null, hasta != null ? YearMonth.from(hasta) : null, cancelacion);
+        } catch (SQLException e) {
+            informarError("Error al obtener el alcance de pacientes", e, cancelacion);
+            return new HashMap<>();
+        }
     }
 
-    sql.append(" GROUP BY pp.nombre_programa ");
-
-    try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql.toString())) {
-        int index = 1;
+    private List<String> programasParaAlcance(List<String> programasSeleccionados) {
+        return programasSeleccionados != null && !programasSeleccionados.isEmpty()
+                ? programasSeleccionados : CatalogoProgramas.getInstancia().getNombres();
+    }
 
-        if (dniObstetra != null && !dniObstetra.isEmpty()) {
-            ps.setString(index++, dniObstetra);
+    // --- Series de tiempo (tendencia) ---
+    // Una serie por programa con total y atendidas de cada mes entre desde y hasta (inclusive).
+    // Una sola consulta agrupada sobre los contadores de estadisticas_citas; el resultado queda en CacheConsultas
+    // por rango y obstetra hasta la próxima escritura en citas. dniObstetra null = todos; cancelacion null = no se cancela.
+    public List<SerieTemporal> obtenerSeriesMensuales(YearMonth desde, YearMonth hasta, String dniObstetra, ConsultaCancelable cancelacion) {
+        Integer idObstetra = idObstetraParaFiltro(dniObstetra);
+        if (idObstetra != null && idObstetra < 0) {
+            return new ArrayList<>();
         }
-
-        if (programasSeleccionados != null && !programasSeleccionados.isEmpty()) {
-            for (String programa : programasSeleccionados) {
-                ps.setString(index++, programa);
-            }
+        String sql = "SELECT id_programa, anio, mes, SUM(cantidad), SUM(CASE WHEN estado_cita = 2 THEN cantidad ELSE 0 END) "
+                + "FROM estadisticas_citas WHERE anio * 12 + mes BETWEEN ? AND ?"
+                + (idObstetra != null ? " AND id_obstetra = ?" : "")
+                + " GROUP BY id_programa, anio, mes";
+        int primero = desde.getYear() * 12 + desde.getMonthValue();
+        int ultimo = hasta.getYear() * 12 + hasta.getMonthValue();
+        List<LocalDate> periodos = new ArrayList<>();
+        for (YearMonth m = desde; !m.isAfter(hasta); m = m.plusMonths(1)) {
+            periodos.add(m.atDay(1));
         }
+        List<Object> parametros = idObstetra != null ? Arrays.asList(primero, ultimo, idObstetra) : Arrays.asList(primero, ultimo);
+        try {
+            return new ArrayList<>(CacheConsultas.getInstancia().obtener(sql, parametros, () -> {
+                Map<Integer, int[][]> porPrograma = new LinkedHashMap<>();
+                try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
+                    for (int i = 0; i < parametros.size(); i++) {
+                        ps.setInt(i + 1, (Integer) parametros.get(i));
+                    }
+                    if (cancelacion != null) {
+                        cancelacion.registrar(ps);
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            int indice = rs.getInt(2) * 12 + rs.getInt(3) - primero;
+                            sumarPeriodo(porPrograma, rs.getInt(1), periodos.size(), indice, rs.getInt(4), rs.getInt(5));
+                        }
+                    } finally {
+                        if (cancelacion != null) {
+                            cancelacion.liberar();
+                        }
+                    }
+                }
+                return armarSeries(periodos, porPrograma);
+            }, CacheConsultas.CITAS));
+        } catch (SQLException e) {
+            informarError("Error al obtener series mensuales", e, cancelacion);
+            return new ArrayList<>();
+        }
+    }
 
-        if (fechaSeleccionada != null) {
-            java.util.Calendar cal = java.util.Calendar.getInstance();
-            cal.setTime(fechaSeleccionada);
-            int mes = cal.get(java.util.Calendar.MONTH) + 1; // Calendar es base 0
-            int anio = cal.get(java.util.Calendar.YEAR);
+    // Igual que la mensual, por semanas de lunes a domingo desde la semana de desde hasta la de hasta.
+    // Agrupa directamente sobre citas (los contadores son mensuales), en una sola consulta.
+    public List<SerieTemporal> obtenerSeriesSemanales(LocalDate desde, LocalDate hasta, String dniObstetra, ConsultaCancelable cancelacion) {
+        Integer idObstetra = idObstetraParaFiltro(dniObstetra);
+        if (idObstetra != null && idObstetra < 0) {
+            return new ArrayList<>();
+        }
+        LocalDate lunes = desde.with(DayOfWeek.MONDAY);
+        LocalDate finExclusivo = hasta.with(DayOfWeek.MONDAY).plusWeeks(1);
+        String sql = "SELECT id_programa, semana, COUNT(*), SUM(CASE WHEN estado_cita = 2 THEN 1 ELSE 0 END) FROM ("
+                + "SELECT id_programa, estado_cita, DATEDIFF(DAY, ?, fecha_cita) / 7 AS semana FROM citas "
+                + "WHERE fecha_cita >= ? AND fecha_cita < ?" + (idObstetra != null ? " AND id_obstetra = ?" : "")
+                + ") t GROUP BY id_programa, semana";
+        List<LocalDate> periodos = new ArrayList<>();
+        for (LocalDate s = lunes; s.isBefore(finExclusivo); s = s.plusWeeks(1)) {
+            periodos.add(s);
+        }
+        Timestamp inicio = Timestamp.valueOf(lunes.atStartOfDay());
+        Timestamp fin = Timestamp.valueOf(finExclusivo.atStartOfDay());
+        List<Object> parametros = idObstetra != null ? Arrays.asList(inicio, inicio, fin, idObstetra) : Arrays.asList(inicio, inicio, fin);
+        try {
+            return new ArrayList<>(CacheConsultas.getInstancia().obtener(sql, parametros, () -> {
+                Map<Integer, int[][]> porPrograma = new LinkedHashMap<>();
+                try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
+                    ps.setTimestamp(1, inicio);
+                    ps.setTimestamp(2, inicio);
+                    ps.setTimestamp(3, fin);
+                    if (idObstetra != null) {
+                        ps.setInt(4, idObstetra);
+                    }
+                    if (cancelacion != null) {
+                        cancelacion.registrar(ps);
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            sumarPeriodo(porPrograma, rs.getInt(1), periodos.size(), rs.getInt(2), rs.getInt(3), rs.getInt(4));
+                        }
+                    } finally {
+                        if (cancelacion != null) {
+                            cancelacion.liberar();
+                        }
+                    }
+                }
+                return armarSeries(periodos, porPrograma);
+            }, CacheConsultas.CITAS));
+        } catch (SQLException e) {
+            informarError("Error al obtener series semanales", e, cancelacion);
+            return new ArrayList<>();
+        }
+    }
 
-            ps.setInt(index++, mes);
-            ps.setInt(index++, anio);
+    // Una consulta cancelada a propósito no es un error
+    private static void informarError(String mensaje, SQLException e, ConsultaCancelable cancelacion) {
+        if (cancelacion == null || !cancelacion.isCancelada()) {
+            System.err.println(mensaje + ": " + e.getMessage());
         }
+    }
 
-        try (ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                Map<String, Object> map = new HashMap<>();
-                int total = rs.getInt("total");
-                int atendidas = rs.getInt("atendidas");
-                double porcentaje = total == 0 ? 0 : (atendidas * 100.0 / total);
-
-                map.put("programa", rs.getString("nombre_programa"));
-                map.put("total", total);
-                map.put("atendidas", atendidas);
-                map.put("porcentaje", porcentaje);
-                lista.add(map);
-            }
+    // null = sin filtro; -1 si el DNI no corresponde a ningún usuario
+    private Integer idObstetraParaFiltro(String dniObstetra) {
+        if (dniObstetra == null || dniObstetra.isEmpty()) {
+            return null;
         }
+        UsuarioResumen obstetra = DirectorioUsuarios.getInstancia().buscarPorDni(dniObstetra);
+        return obstetra != null ? obstetra.getId() : -1;
+    }
 
-    } catch (SQLException e) {
-        System.err.println("Error al obtener estadísticas por programa con filtro: " + e.getMessage());
+    // porPrograma: id_programa -> {totales, atendidas} por período
+    private static void sumarPeriodo(Map<Integer, int[][]> porPrograma, int idPrograma, int periodos, int indice, int total, int atendidas) {
+        if (indice < 0 || indice >= periodos) {
+            return;
+        }
+        int[][] serie = porPrograma.computeIfAbsent(idPrograma, id -> new int[2][periodos]);
+        serie[0][indice] += total;
+        serie[1][indice] += atendidas;
     }
 
-    return lista;
+    // Una serie por programa del catálogo (en su orden), con ceros si no tuvo citas en el rango
+    private static List<SerieTemporal> armarSeries(List<LocalDate> periodos, Map<Integer, int[][]> porPrograma) {
+        List<SerieTemporal> series = new ArrayList<>();
+        int[] ceros = new int[periodos.size()];
+        for (Map.Entry<Integer, String> programa : CatalogoProgramas.getInstancia().getProgramas().entrySet()) {
+            int[][] datos = porPrograma.get(programa.getKey());
+            series.add(new SerieTemporal(programa.getValue(), periodos, datos != null ? datos[0] : ceros, datos != null ? datos[1] : ceros));
+        }
+        return Collections.unmodifiableList(series);
+    }
 }
-
-}
\ No newline at end of file
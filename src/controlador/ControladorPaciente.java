@@ -4,13 +4,22 @@ import java.sql.*;
 import java.time.LocalDate;
 import java.time.Period;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import conexion.Conexion;
+import modelo.Delta;
+import modelo.Pagina;
 import modelo.Paciente;
+import utilidades.CacheLRU;
 
 public class ControladorPaciente {
 
+    // Pacientes cargados recientemente, compartidos por todas las instancias del controlador
+    private static final CacheLRU<Integer, Paciente> CACHE_POR_ID = new CacheLRU<>(256);
+    private static final CacheLRU<String, Integer> CACHE_ID_POR_DNI = new CacheLRU<>(256);
+
     // Registrar paciente
     public boolean registrar(Paciente paciente) {
         if (paciente.getFechaNac().isAfter(LocalDate.now())) {
@@ -28,7 +37,12 @@ public class ControladorPaciente {
             ps.setString(4, paciente.getTelefono());
             ps.setString(5, paciente.getDireccion());
 
-            return ps.executeUpdate() > 0;
+            boolean ok = ps.executeUpdate() > 0;
+            if (ok) {
+                BuscadorPacientes.getInstancia().agregarDni(paciente.getDni());
+                NotificadorCambios.getInstancia().registrarCambio(CacheConsultas.PACIENTES);
+            }
+            return ok;
 
         } catch (SQLException e) {
             System.out.println("Error al registrar paciente: " + e.toString());
@@ -36,11 +50,24 @@ public class ControladorPaciente {
         }
     }
 
-    // Listar pacientes activos
+    // Listar pacientes activos (pasa por CacheConsultas; se invalida al registrar, modificar o eliminar)
     public List<Paciente> listar() {
-        List<Paciente> lista = new ArrayList<>();
         String sql = "SELECT * FROM pacientes WHERE estado = 1";
+        try {
+            List<Paciente> enCache = CacheConsultas.getInstancia().obtener(sql, List.of(), () -> leerActivos(sql), CacheConsultas.PACIENTES);
+            List<Paciente> lista = new ArrayList<>(enCache.size());
+            for (Paciente p : enCache) {
+                lista.add(copiar(p));
+            }
+            return lista;
+        } catch (SQLException e) {
+            System.out.println("Error al listar pacientes: " + e.toString());
+            return new ArrayList<>();
+        }
+    }
 
+    private List<Paciente> leerActivos(String sql) throws SQLException {
+        List<Paciente> lista = new ArrayList<>();
         try (Connection con = Conexion.conectar();
              PreparedStatement ps = con.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
@@ -57,12 +84,214 @@ public class ControladorPaciente {
                 );
                 lista.add(p);
             }
+        }
+        return lista;
+    }
+
+    // Columnas por las que se puede ordenar la consulta paginada (clave -> columna SQL).
+    // Solo se concatenan valores de esta lista blanca en el ORDER BY.
+    public static final String ORDEN_ID = "id";
+    public static final String ORDEN_NOMBRE = "nombre";
+    public static final String ORDEN_DNI = "dni";
+    public static final String ORDEN_EDAD = "edad";
+    public static final String ORDEN_TELEFONO = "telefono";
+    public static final String ORDEN_DIRECCION = "direccion";
+
+    private static final Map<String, String> COLUMNAS_ORDEN = Map.of(
+            ORDEN_ID, "id",
+            ORDEN_NOMBRE, "nombre_completo",
+            ORDEN_DNI, "dni",
+            ORDEN_EDAD, "fecha_nacimiento",
+            ORDEN_TELEFONO, "telefono",
+            ORDEN_DIRECCION, "direccion"
+    );
+
+    // Consulta paginada de pacientes activos: una página ordenada en el servidor,
+    // con filtro opcional (DNI que empieza por el texto o nombre que lo contiene, sin distinguir mayúsculas) y el total de filas.
+    // %, _ y [ del texto se buscan literalmente.
+    // Las páginas pasan por CacheConsultas: volver a la ventana o a una página ya vista no consulta de nuevo.
+    public Pagina<Paciente> consultarPagina(int numeroPagina, int tamanoPagina, String ordenarPor, boolean ascendente, String filtro) {
+        String columna = COLUMNAS_ORDEN.getOrDefault(ordenarPor, "nombre_completo");
+        // Mayor edad = fecha de nacimiento más antigua
+        boolean asc = ORDEN_EDAD.equals(ordenarPor) ? !ascendente : ascendente;
+        String texto = filtro != null && !filtro.isBlank() ? filtro.trim() : null;
+
+        String where = " WHERE estado = 1" + (texto != null ? " AND (dni LIKE ? ESCAPE '\\' OR UPPER(nombre_completo) LIKE ? ESCAPE '\\')" : "");
+        String sqlTotal = "SELECT COUNT(*) FROM pacientes" + where;
+        String sqlPagina = "SELECT id, nombre_completo, dni, fecha_nacimiento, telefono, direccion, estado FROM pacientes"
+                + where
+                + " ORDER BY " + columna + (asc ? " ASC" : " DESC") + ", id" + (asc ? " ASC" : " DESC")
+                + " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY";
 
+        try {
+            return CacheConsultas.getInstancia().obtener(sqlPagina, Arrays.asList(texto, numeroPagina, tamanoPagina),
+                    () -> leerPagina(sqlTotal, sqlPagina, texto, numeroPagina, tamanoPagina), CacheConsultas.PACIENTES);
         } catch (SQLException e) {
-            System.out.println("Error al listar pacientes: " + e.toString());
+            System.out.println("Error al consultar página de pacientes: " + e.toString());
+            return new Pagina<>(new ArrayList<>(), numeroPagina, tamanoPagina, 0);
         }
+    }
 
-        return lista;
+    private Pagina<Paciente> leerPagina(String sqlTotal, String sqlPagina, String texto, int numeroPagina, int tamanoPagina) throws SQLException {
+        List<Paciente> lista = new ArrayList<>();
+        int total = 0;
+        try (Connection con = Conexion.conectar()) {
+            try (PreparedStatement ps = con.prepareStatement(sqlTotal)) {
+                if (texto != null) {
+                    ps.setString(1, escaparLike(texto) + "%");
+                    ps.setString(2, "%" + escaparLike(texto.toUpperCase()) + "%");
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        total = rs.getInt(1);
+                    }
+                }
+            }
+
+            try (PreparedStatement ps = con.prepareStatement(sqlPagina)) {
+                int i = 1;
+                if (texto != null) {
+                    ps.setString(i++, escaparLike(texto) + "%");
+                    ps.setString(i++, "%" + escaparLike(texto.toUpperCase()) + "%");
+                }
+                ps.setInt(i++, numeroPagina * tamanoPagina);
+                ps.setInt(i++, tamanoPagina);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        lista.add(mapearPaciente(rs));
+                    }
+                }
+            }
+        }
+        return new Pagina<>(lista, numeroPagina, tamanoPagina, total);
+    }
+
+    // Comodines de LIKE como texto literal (con ESCAPE '\'); [ solo es comodín en SQL Server
+    private static String escaparLike(String texto) {
+        return texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_").replace("[", "\\[");
+    }
+
+    // Refresco incremental (columna fecha_modificacion, migración V3); null si no hay pacientes o falla
+    public Timestamp obtenerMarcaPacientes() {
+        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement("SELECT MAX(fecha_modificacion) FROM pacientes");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getTimestamp(1) : null;
+        } catch (SQLException e) {
+            System.out.println("Error al obtener la marca de modificación de pacientes: " + e.toString());
+            return null;
+        }
+    }
+
+    // Pacientes insertados, modificados o eliminados (estado = 0) desde la marca, con el mismo margen
+    // de solapamiento que las citas. null si la consulta falla.
+    public Delta<Paciente> listarPacientesModificadosDesde(Timestamp marca) {
+        String sql = "SELECT id, nombre_completo, dni, fecha_nacimiento, telefono, direccion, estado, fecha_modificacion "
+                + "FROM pacientes WHERE fecha_modificacion >= ? ORDER BY fecha_modificacion ASC";
+        List<Paciente> cambios = new ArrayList<>();
+        Timestamp nueva = marca;
+        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setTimestamp(1, new Timestamp(marca.getTime() - ControladorCita.MARGEN_MARCA_MS));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    cambios.add(mapearPaciente(rs));
+                    Timestamp modificada = rs.getTimestamp(8);
+                    if (modificada.after(nueva)) {
+                        nueva = modificada;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Error al listar pacientes modificados: " + e.toString());
+            return null;
+        }
+        return new Delta<>(cambios, nueva);
+    }
+
+    // id, nombre_completo, dni, fecha_nacimiento, telefono, direccion, estado (por índice)
+    private Paciente mapearPaciente(ResultSet rs) throws SQLException {
+        Date fechaNac = rs.getDate(4);
+        return new Paciente(
+                rs.getInt(1),
+                rs.getString(2),
+                rs.getString(3),
+                fechaNac != null ? fechaNac.toLocalDate() : null,
+                rs.getString(5),
+                rs.getString(6),
+                rs.getInt(7)
+        );
+    }
+
+    // Búsqueda por clave primaria. Usa la cache de pacientes recientes antes de ir a la base.
+    public Paciente buscarPorId(int id) {
+        Paciente enCache = CACHE_POR_ID.get(id);
+        if (enCache != null) {
+            return copiar(enCache);
+        }
+
+        String sql = "SELECT id, nombre_completo, dni, fecha_nacimiento, telefono, direccion, estado FROM pacientes WHERE id = ?";
+        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    Paciente p = mapearPaciente(rs);
+                    CACHE_POR_ID.put(p.getId(), p);
+                    return copiar(p);
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Error al buscar paciente por id: " + e.toString());
+        }
+        return null;
+    }
+
+    // Búsqueda por DNI (índice único). Si el DNI ya se resolvió antes, no consulta la base.
+    public Paciente buscarPorDni(String dni) {
+        if (dni == null || dni.isBlank()) {
+            return null;
+        }
+        Integer id = CACHE_ID_POR_DNI.get(dni);
+        if (id != null) {
+            Paciente enCache = CACHE_POR_ID.get(id);
+            if (enCache != null) {
+                return copiar(enCache);
+            }
+        }
+
+        String sql = "SELECT id, nombre_completo, dni, fecha_nacimiento, telefono, direccion, estado FROM pacientes WHERE dni = ?";
+        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setString(1, dni);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    Paciente p = mapearPaciente(rs);
+                    CACHE_POR_ID.put(p.getId(), p);
+                    CACHE_ID_POR_DNI.put(p.getDni(), p.getId());
+                    return copiar(p);
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Error al buscar paciente por DNI: " + e.toString());
+        }
+        return null;
+    }
+
+    // Vacía las caches de pacientes; la usa NotificadorCambios cuando otra instancia modificó la tabla
+    public static void invalidarCacheCompleta() {
+        CACHE_POR_ID.clear();
+        CACHE_ID_POR_DNI.clear();
+    }
+
+    // Quita de la cache al paciente modificado o eliminado
+    private void invalidarCache(int id) {
+        CACHE_POR_ID.remove(id);
+        CACHE_ID_POR_DNI.removeIf(valor -> valor == id);
+        BuscadorPacientes.getInstancia().invalidar(id);
+        NotificadorCambios.getInstancia().registrarCambio(CacheConsultas.PACIENTES);
+    }
+
+    // La cache guarda su propia instancia: quien reciba el paciente puede modificarlo sin afectarla
+    private Paciente copiar(Paciente p) {
+        return new Paciente(p.getId(), p.getNombreCompleto(), p.getDni(), p.getFechaNac(),
+                p.getTelefono(), p.getDireccion(), p.getEstado());
     }
 
     // Modificar paciente
@@ -84,7 +313,10 @@ public class ControladorPaciente {
             ps.setString(5, paciente.getDireccion());
             ps.setInt(6, paciente.getId());
 
-            return ps.executeUpdate() > 0;
+            boolean ok = ps.executeUpdate() > 0;
+            invalidarCache(paciente.getId());
+            BuscadorPacientes.getInstancia().agregarDni(paciente.getDni()); // Por si cambió el DNI
+            return ok;
 
         } catch (SQLException e) {
             System.out.println("Error al modificar paciente: " + e.toString());
@@ -100,7 +332,9 @@ public class ControladorPaciente {
              PreparedStatement ps = con.prepareStatement(sql)) {
 
             ps.setInt(1, id);
-            return ps.executeUpdate() > 0;
+            boolean ok = ps.executeUpdate() > 0;
+            invalidarCache(id);
+            return ok;
 
         } catch (SQLException e) {
             System.out.println("Error al eliminar paciente: " + e.toString());
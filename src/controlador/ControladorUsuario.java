@@ -100,7 +100,9 @@ public class ControladorUsuario {
         return u;
     }
 
-    // Reiniciar intentos de login y desbloquear si estaba bloqueado
+    // Reiniciar intentos de login y desbloquear si estaba bloqueado.
+    // No avisa del cambio: los intentos no están en ninguna lectura en cache; quien cambia el estado
+    // (desbloquearUsuario) llama a usuariosModificados()
     public void reiniciarIntentos(String usuario) {
         try (Connection con = Conexion.conectar()) {
             String sql = "UPDATE usuarios SET intentos_restantes = ?, fecha_bloqueo = NULL, estado = ? WHERE usuario = ?";
@@ -117,10 +119,11 @@ public class ControladorUsuario {
     // Desbloquear usuario (equivalente a reiniciar intentos)
     public void desbloquearUsuario(String usuario) {
         reiniciarIntentos(usuario);
+        usuariosModificados();
         System.out.println("Usuario " + usuario + " ha sido desbloqueado y sus intentos reiniciados.");
     }
 
-    // Actualizar el número de intentos restantes
+    // Actualizar el número de intentos restantes (en cada login fallido; no invalida caches)
     public void actualizarIntentos(String usuario, int intentosRestantes) {
         try (Connection con = Conexion.conectar()) {
             String sql = "UPDATE usuarios SET intentos_restantes = ? WHERE usuario = ?";
@@ -142,6 +145,7 @@ public class ControladorUsuario {
             pst.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
             pst.setString(3, usuario);
             pst.executeUpdate();
+            usuariosModificados();
         } catch (SQLException e) {
             System.err.println("Error al bloquear usuario: " + e.getMessage());
         }
@@ -183,6 +187,7 @@ public class ControladorUsuario {
             pst.setString(4, usuario);
 
             int filasAfectadas = pst.executeUpdate();
+            usuariosModificados();
             return filasAfectadas > 0;
 
         } catch (SQLException e) {
@@ -212,7 +217,9 @@ public class ControladorUsuario {
             ps.setInt(8, ESTADO_ACTIVO); // Estado inicial activo
             ps.setString(9, usuario.getRol());
 
-            return ps.executeUpdate() > 0;
+            boolean ok = ps.executeUpdate() > 0;
+            usuariosModificados();
+            return ok;
 
         } catch (SQLException e) {
             System.err.println("Error al registrar usuario: " + e.toString()); // Usar err y to.String() para detalles
@@ -220,41 +227,60 @@ public class ControladorUsuario {
         }
     }
 
-    // Listar todos los usuarios activos
+    // Listar todos los usuarios activos (pasa por CacheConsultas; se invalida en cada escritura sobre usuarios).
+    // En cache solo quedan los datos que se muestran: sin contraseña, respuesta de seguridad ni estado de bloqueo,
+    // que además cambian en cada intento de login. Cada llamada recibe objetos Usuario propios.
     public List<Usuario> listar() {
-        List<Usuario> lista = new ArrayList<>();
-        // Asegúrate de seleccionar el DNI en la consulta SQL
-        String sql = "SELECT id, nombre_completo, usuario, contrasena, dni, pregunta_seguridad, respuesta_seguridad, intentos_restantes, estado, rol, fecha_bloqueo FROM usuarios WHERE estado = 1";
+        String sql = "SELECT id, nombre_completo, usuario, dni, pregunta_seguridad, estado, rol FROM usuarios WHERE estado = 1";
+        try {
+            List<Usuario> lista = new ArrayList<>();
+            for (Usuario u : CacheConsultas.getInstancia().obtener(sql, List.of(), () -> leerActivos(sql), CacheConsultas.USUARIOS)) {
+                lista.add(copiaPublica(u));
+            }
+            return lista;
+        } catch (SQLException e) {
+            System.err.println("Error al listar usuarios: " + e.toString());
+            return new ArrayList<>();
+        }
+    }
 
+    private List<Usuario> leerActivos(String sql) throws SQLException {
+        List<Usuario> lista = new ArrayList<>();
         try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
 
             while (rs.next()) {
-                Usuario u = new Usuario(
-                        rs.getInt("id"),
-                        rs.getString("nombre_completo"),
-                        rs.getString("usuario"),
-                        rs.getString("contrasena"),
-                        rs.getString("dni"), // Leer DNI
-                        rs.getString("pregunta_seguridad"),
-                        rs.getString("respuesta_seguridad"),
-                        rs.getInt("intentos_restantes"),
-                        rs.getInt("estado"),
-                        rs.getString("rol"),
-                        rs.getTimestamp("fecha_bloqueo")
-                );
-                // El bloque try-catch para DNI en listar() ya no es estrictamente necesario
-                // si la columna 'dni' siempre va a existir, pero no hace daño.
-                // Lo he integrado directamente en el constructor para mayor limpieza.
+                Usuario u = new Usuario();
+                u.setId(rs.getInt("id"));
+                u.setNombreCompleto(rs.getString("nombre_completo"));
+                u.setUsuario(rs.getString("usuario"));
+                u.setDni(rs.getString("dni")); // Leer DNI
+                u.setPreguntaSeguridad(rs.getString("pregunta_seguridad"));
+                u.setEstado(rs.getInt("estado"));
+                u.setRol(rs.getString("rol"));
                 lista.add(u);
             }
-
-        } catch (SQLException e) {
-            System.err.println("Error al listar usuarios: " + e.toString());
         }
-
         return lista;
     }
 
+    private static Usuario copiaPublica(Usuario u) {
+        Usuario copia = new Usuario();
+        copia.setId(u.getId());
+        copia.setNombreCompleto(u.getNombreCompleto());
+        copia.setUsuario(u.getUsuario());
+        copia.setDni(u.getDni());
+        copia.setPreguntaSeguridad(u.getPreguntaSeguridad());
+        copia.setEstado(u.getEstado());
+        copia.setRol(u.getRol());
+        return copia;
+    }
+
+    // El directorio en memoria y las consultas en cache sobre usuarios quedan viejos tras una escritura
+    private void usuariosModificados() {
+        DirectorioUsuarios.getInstancia().invalidar();
+        NotificadorCambios.getInstancia().registrarCambio(CacheConsultas.USUARIOS);
+    }
+
     // Modificar usuario
     public boolean modificar(Usuario usuario) {
         String sql;
@@ -285,7 +311,9 @@ public class ControladorUsuario {
             ps.setString(i++, usuario.getRol());
             ps.setInt(i++, usuario.getId());
 
-            return ps.executeUpdate() > 0;
+            boolean ok = ps.executeUpdate() > 0;
+            usuariosModificados();
+            return ok;
 
         } catch (SQLException e) {
             System.err.println("Error al modificar usuario: " + e.toString());
@@ -300,7 +328,9 @@ public class ControladorUsuario {
         try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
 
             ps.setInt(1, id);
-            return ps.executeUpdate() > 0;
+            boolean ok = ps.executeUpdate() > 0;
+            usuariosModificados();
+            return ok;
 
         } catch (SQLException e) {
             System.err.println("Error al eliminar usuario: " + e.toString());
@@ -377,23 +407,9 @@ public class ControladorUsuario {
         return false;
     }
     
-    // Obtener nombre completo por DNI (para autocompletar en Estadísticas)
-public String obtenerNombrePorDni(String dni) {
-    String nombre = null;
-    String sql = "SELECT nombre_completo FROM usuarios WHERE dni = ? AND estado = 1";
-
-    try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
-        ps.setString(1, dni);
-        try (ResultSet rs = ps.executeQuery()) {
-            if (rs.next()) {
-                nombre = rs.getString("nombre_completo");
-            }
-        }
-    } catch (SQLException e) {
-        System.err.println("Error al obtener nombre por DNI: " + e.toString());
+    // Obtener nombre completo por DNI (para autocompletar en Estadísticas); búsqueda en memoria
+    public String obtenerNombrePorDni(String dni) {
+        return DirectorioUsuarios.getInstancia().obtenerNombreActivoPorDni(dni);
     }
 
-    return nombre;
-}
-
 }
@@ -0,0 +1,593 @@
+package controlador;
+
+import conexion.Conexion;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import modelo.Cita;
+import utilidades.ArbolFenwick;
+
+// Cubo en memoria con la cantidad de citas por programa, obstetra, año, mes, día de la semana y estado.
+//
+// - Se arma con un solo recorrido de la tabla citas (sin guardar las filas) y los conteos quedan en un int[]
+//   con una celda por combinación de miembros; total, atendidas y canceladas salen de la dimensión estado.
+// - agrupar() suma las celdas que pasan el filtro, agrupadas por una dimensión (roll-up). Para bajar de nivel
+//   (drill-down) se fija el miembro en el filtro y se agrupa por otra dimensión.
+// - Se entera de las escrituras por NotificadorCambios (propias y de otras instancias) y, en la siguiente
+//   consulta, aplica solo las citas modificadas desde la última marca (fecha_modificacion, migración V3).
+//   Para restar el estado anterior guarda la celda de cada cita, indexada por id_cita.
+//   Si aparece un programa, obstetra o año nuevo, se vuelve a armar completo.
+// - Además lleva, por cada par programa-obstetra, contadores diarios en árboles de Fenwick:
+//   agruparPorRango() suma cualquier rango de fechas en O(log días) por par, sin recorrer las celdas.
+//
+// Es compartido por todas las ventanas; los métodos públicos son seguros entre hilos.
+// Las consultas a la base se hacen fuera del candado del cubo: un cubo nuevo se arma aparte y se reemplaza
+// entero, y las citas modificadas se leen antes de aplicarlas. Mientras otro hilo carga, las consultas
+// responden con los datos que ya había; solo la primera espera a que el cubo exista.
+public final class CuboCitas {
+
+    public enum Dimension {
+        PROGRAMA, OBSTETRA, ANIO, MES, DIA_SEMANA, ESTADO
+    }
+
+    private static final int MESES = 12;
+    private static final int DIAS = 7;
+    private static final int ESTADOS = 3; // Cita.ESTADO_CANCELADO (0), ESTADO_PENDIENTE (1), ESTADO_ATENDIDO (2)
+
+    // Contadores diarios: [medida][programa * obstetras + obstetra]; medidas TOTAL, ATENDIDAS y CANCELADAS
+    private static final int TOTAL = 0;
+    private static final int ATENDIDAS = 1;
+    private static final int CANCELADAS = 2;
+
+    // Una cita con un miembro nuevo registrada entre la lectura de miembros y el recorrido obliga a armar de nuevo
+    private static final int INTENTOS_CONSTRUIR = 3;
+
+    private static final String SQL_CITAS = "SELECT id_cita, id_programa, id_obstetra, fecha_cita, estado_cita FROM citas";
+
+    private static final CuboCitas INSTANCIA = new CuboCitas();
+
+    private volatile Datos datos;           // null hasta la primera consulta; se lee y modifica con el candado del cubo
+    private final ReentrantLock carga = new ReentrantLock(); // Un solo hilo lee la base a la vez
+    private volatile boolean pendiente;     // Hubo escrituras en citas desde la última actualización
+    private long construcciones;
+    private long actualizaciones;
+
+    private CuboCitas() {
+        NotificadorCambios.getInstancia().agregarOyente(tablas -> {
+            if (tablas.contains(CacheConsultas.CITAS)) {
+                pendiente = true;
+            }
+        }, true);
+    }
+
+    public static CuboCitas getInstancia() {
+        return INSTANCIA;
+    }
+
+    // Miembros fijados por dimensión; una dimensión sin fijar incluye todos sus miembros
+    public static final class Filtro {
+
+        private final Map<Dimension, Set<Integer>> miembros = new LinkedHashMap<>();
+
+        // Valores: id_programa, id_obstetra, año, mes (1-12), día de la semana (1 = lunes ... 7 = domingo) o estado_cita
+        public Filtro con(Dimension dimension, Integer... valores) {
+            return con(dimension, Arrays.asList(valores));
+        }
+
+        public Filtro con(Dimension dimension, Collection<Integer> valores) {
+            miembros.put(dimension, new TreeSet<>(valores));
+            return this;
+        }
+
+        Set<Integer> get(Dimension dimension) {
+            return miembros.get(dimension);
+        }
+    }
+
+    public static final class Medidas {
+
+        private int total;
+        private int atendidas;
+        private int canceladas;
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getAtendidas() {
+            return atendidas;
+        }
+
+        public int getCanceladas() {
+            return canceladas;
+        }
+
+        public double getPorcentajeAtendidas() {
+            return total == 0 ? 0 : atendidas * 100.0 / total;
+        }
+    }
+
+    // Suma de las celdas que cumplen el filtro, agrupada por los miembros de la dimensión (ordenados, solo los que tienen citas).
+    // Devuelve un mapa vacío si no se pudo leer la base.
+    public Map<Integer, Medidas> agrupar(Filtro filtro, Dimension porDimension) {
+        if (!asegurarVigente(null)) {
+            return new TreeMap<>();
+        }
+        synchronized (this) {
+            return datos.agrupar(filtro, porDimension);
+        }
+    }
+
+    // Total del filtro sin agrupar
+    public Medidas totales(Filtro filtro) {
+        Medidas suma = new Medidas();
+        for (Medidas m : agrupar(filtro, Dimension.ESTADO).values()) {
+            suma.total += m.total;
+            suma.atendidas += m.atendidas;
+            suma.canceladas += m.canceladas;
+        }
+        return suma;
+    }
+
+    // Medidas de las citas entre desde y hasta (inclusive; null = sin límite), agrupadas por PROGRAMA u OBSTETRA.
+    // Del filtro solo se usan las dimensiones PROGRAMA y OBSTETRA: el rango reemplaza a año, mes y día.
+    // Si esta consulta tiene que armar el cubo, cancelacion (null = no se cancela) corta la lectura de citas;
+    // la próxima consulta lo vuelve a intentar.
+    public Map<Integer, Medidas> agruparPorRango(Filtro filtro, LocalDate desde, LocalDate hasta, Dimension porDimension, ConsultaCancelable cancelacion) {
+        if (porDimension != Dimension.PROGRAMA && porDimension != Dimension.OBSTETRA) {
+            throw new IllegalArgumentException("El rango de fechas solo se agrupa por programa u obstetra: " + porDimension);
+        }
+        if (!asegurarVigente(cancelacion)) {
+            return new TreeMap<>();
+        }
+        synchronized (this) {
+            return datos.agruparPorRango(filtro, desde, hasta, porDimension);
+        }
+    }
+
+    public synchronized int getCitas() {
+        return datos != null ? datos.citas : 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        Datos d = datos;
+        return String.format("CuboCitas[citas=%d, programas=%d, obstetras=%d, años=%d, celdas=%d, construcciones=%d, actualizaciones=%d]",
+                d != null ? d.citas : 0, d != null ? d.idPrograma.length : 0, d != null ? d.idObstetra.length : 0,
+                d != null ? d.anios : 0, d != null ? d.conteos.length : 0, construcciones, actualizaciones);
+    }
+
+    // Arma el cubo la primera vez y aplica los cambios pendientes; false si no hay cubo que consultar.
+    // Si otro hilo ya está leyendo la base y hay un cubo armado, se responde con ese sin esperar.
+    private boolean asegurarVigente(ConsultaCancelable cancelacion) {
+        if (datos != null && !pendiente) {
+            return true;
+        }
+        if (datos != null) {
+            if (!carga.tryLock()) {
+                return true;
+            }
+        } else {
+            carga.lock();
+        }
+        try {
+            if (datos == null) {
+                pendiente = false;
+                return construir(cancelacion);
+            }
+            if (pendiente) {
+                pendiente = false;
+                if (!aplicarCambios()) {
+                    return construir(cancelacion);
+                }
+            }
+            return true;
+        } finally {
+            carga.unlock();
+        }
+    }
+
+    // Arma un cubo nuevo sin tomar el candado y lo pone en lugar del anterior.
+    // Si falla se conserva el anterior (si lo había) y se reintenta en la próxima consulta.
+    private boolean construir(ConsultaCancelable cancelacion) {
+        try (Connection con = Conexion.conectar()) {
+            if (con == null) {
+                return falloCarga();
+            }
+            for (int intento = 1; intento <= INTENTOS_CONSTRUIR; intento++) {
+                Datos nuevos = leerCubo(con, cancelacion);
+                if (nuevos != null) {
+                    synchronized (this) {
+                        datos = nuevos;
+                        construcciones++;
+                    }
+                    return true;
+                }
+            }
+            System.err.println("No se pudo armar el cubo de citas: la tabla cambió de miembros en cada uno de los "
+                    + INTENTOS_CONSTRUIR + " intentos.");
+            return falloCarga();
+        } catch (SQLException e) {
+            if (cancelacion == null || !cancelacion.isCancelada()) {
+                System.err.println("Error al armar el cubo de citas: " + e.getMessage());
+            }
+            return falloCarga();
+        }
+    }
+
+    private boolean falloCarga() {
+        pendiente = true;
+        return datos != null;
+    }
+
+    // Los miembros de cada dimensión salen de consultas agregadas (DISTINCT, MIN/MAX de fecha);
+    // después un solo recorrido de citas, fila por fila, llena los conteos.
+    // null si una cita cae fuera de esos miembros (se registró durante la lectura): hay que volver a leer.
+    private static Datos leerCubo(Connection con, ConsultaCancelable cancelacion) throws SQLException {
+        Timestamp marcaLeida = leerMarca(con);
+        Map<Integer, Integer> programas = new HashMap<>();
+        Map<Integer, Integer> obstetras = new HashMap<>();
+        int[] rangoAnios = {Integer.MAX_VALUE, Integer.MIN_VALUE};
+        leerMiembros(con, "SELECT DISTINCT id_programa FROM citas", programas);
+        leerMiembros(con, "SELECT DISTINCT id_obstetra FROM citas", obstetras);
+        try (PreparedStatement ps = con.prepareStatement("SELECT MIN(fecha_cita), MAX(fecha_cita) FROM citas"); ResultSet rs = ps.executeQuery()) {
+            if (rs.next() && rs.getTimestamp(1) != null) {
+                rangoAnios[0] = rs.getTimestamp(1).toLocalDateTime().getYear();
+                rangoAnios[1] = rs.getTimestamp(2).toLocalDateTime().getYear();
+            }
+        }
+        Datos nuevos = new Datos(programas, obstetras, rangoAnios[0] <= rangoAnios[1] ? rangoAnios[0] : LocalDateTime.now().getYear(),
+                rangoAnios[0] <= rangoAnios[1] ? rangoAnios[1] - rangoAnios[0] + 1 : 1);
+
+        try (PreparedStatement ps = con.prepareStatement(SQL_CITAS)) {
+            ps.setFetchSize(1000);
+            if (cancelacion != null) {
+                cancelacion.registrar(ps);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (!nuevos.contar(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getTimestamp(4), rs.getInt(5))) {
+                        return null;
+                    }
+                }
+            } finally {
+                if (cancelacion != null) {
+                    cancelacion.liberar();
+                }
+            }
+        }
+        nuevos.marca = marcaLeida;
+        return nuevos;
+    }
+
+    // Citas modificadas desde la marca (con el mismo margen que ControladorCita). false si hay que reconstruir.
+    // Las filas se leen sin el candado; se aplican con él y solo si todas caben en las dimensiones actuales.
+    private boolean aplicarCambios() {
+        Datos actuales = datos;
+        if (actuales.marca == null) {
+            return false; // Tabla vacía al armar el cubo: lo nuevo puede traer miembros nuevos
+        }
+        String sql = "SELECT id_cita, id_programa, id_obstetra, fecha_cita, estado_cita, fecha_modificacion FROM citas WHERE fecha_modificacion >= ?";
+        List<Cita> modificadas = new ArrayList<>();
+        Timestamp nueva = actuales.marca;
+        try (Connection con = Conexion.conectar(); PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setTimestamp(1, new Timestamp(actuales.marca.getTime() - ControladorCita.MARGEN_MARCA_MS));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Cita c = new Cita();
+                    c.setIdCita(rs.getInt(1));
+                    c.setIdPrograma(rs.getInt(2));
+                    c.setIdObstetra(rs.getInt(3));
+                    c.setFechaCita(rs.getTimestamp(4));
+                    c.setEstadoCita(rs.getInt(5));
+                    modificadas.add(c);
+                    Timestamp modificada = rs.getTimestamp(6);
+                    if (modificada.after(nueva)) {
+                        nueva = modificada;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al actualizar el cubo de citas: " + e.getMessage());
+            return false;
+        }
+        synchronized (this) {
+            for (Cita c : modificadas) {
+                if (!actuales.cabe(c.getIdPrograma(), c.getIdObstetra(), c.getFechaCita())) {
+                    return false;
+                }
+            }
+            for (Cita c : modificadas) {
+                actuales.contar(c.getIdCita(), c.getIdPrograma(), c.getIdObstetra(), c.getFechaCita(), c.getEstadoCita());
+            }
+            actuales.marca = nueva;
+            actualizaciones++;
+        }
+        return true;
+    }
+
+    private static void leerMiembros(Connection con, String sql, Map<Integer, Integer> indice) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                indice.putIfAbsent(rs.getInt(1), indice.size());
+            }
+        }
+    }
+
+    private static Timestamp leerMarca(Connection con) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement("SELECT MAX(fecha_modificacion) FROM citas"); ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getTimestamp(1) : null;
+        }
+    }
+
+    private static int[] invertir(Map<Integer, Integer> indice) {
+        int[] ids = new int[indice.size()];
+        for (Map.Entry<Integer, Integer> e : indice.entrySet()) {
+            ids[e.getValue()] = e.getKey();
+        }
+        return ids;
+    }
+
+    // Los conteos de un cubo armado. Mientras se arma no lo ve nadie más; una vez publicado en datos,
+    // se lee y se modifica solo con el candado del cubo.
+    private static final class Datos {
+
+        // Diccionarios de miembros: id -> posición en la dimensión
+        private final Map<Integer, Integer> indicePrograma;
+        private final Map<Integer, Integer> indiceObstetra;
+        private final int[] idPrograma;
+        private final int[] idObstetra;
+        private final int anioMinimo;
+        private final int anios;
+
+        private final int[] conteos;
+        private int[] celdaPorCita = new int[0]; // id_cita -> celda + 1 (0 = cita no contada)
+        private int[] diaPorCita = new int[0];   // id_cita -> día (desde el 1 de enero de anioMinimo) de la cita contada
+
+        private final ArbolFenwick[][] porDia;
+        private final LocalDate primerDia;
+        private int citas;
+        private Timestamp marca;
+
+        Datos(Map<Integer, Integer> programas, Map<Integer, Integer> obstetras, int desdeAnio, int cantidadAnios) {
+            indicePrograma = programas;
+            indiceObstetra = obstetras;
+            idPrograma = invertir(programas);
+            idObstetra = invertir(obstetras);
+            anioMinimo = desdeAnio;
+            anios = cantidadAnios;
+            conteos = new int[idPrograma.length * idObstetra.length * anios * MESES * DIAS * ESTADOS];
+            primerDia = LocalDate.of(anioMinimo, 1, 1);
+            int dias = (int) ChronoUnit.DAYS.between(primerDia, primerDia.plusYears(anios));
+            porDia = new ArbolFenwick[3][idPrograma.length * idObstetra.length];
+            for (ArbolFenwick[] medida : porDia) {
+                for (int i = 0; i < medida.length; i++) {
+                    medida[i] = new ArbolFenwick(dias);
+                }
+            }
+        }
+
+        Map<Integer, Medidas> agrupar(Filtro filtro, Dimension porDimension) {
+            Map<Integer, Medidas> resultado = new TreeMap<>();
+            int programas = idPrograma.length;
+            int obstetras = idObstetra.length;
+            boolean[][] incluidos = new boolean[Dimension.values().length][];
+            for (Dimension d : Dimension.values()) {
+                incluidos[d.ordinal()] = mascara(d, filtro != null ? filtro.get(d) : null);
+            }
+            boolean[] fp = incluidos[Dimension.PROGRAMA.ordinal()];
+            boolean[] fo = incluidos[Dimension.OBSTETRA.ordinal()];
+            boolean[] fa = incluidos[Dimension.ANIO.ordinal()];
+            boolean[] fm = incluidos[Dimension.MES.ordinal()];
+            boolean[] fd = incluidos[Dimension.DIA_SEMANA.ordinal()];
+            boolean[] fe = incluidos[Dimension.ESTADO.ordinal()];
+
+            int grupos = tamano(porDimension);
+            int[] total = new int[grupos];
+            int[] atendidas = new int[grupos];
+            int[] canceladas = new int[grupos];
+            int[] posicion = new int[Dimension.values().length];
+            for (int p = 0; p < programas; p++) {
+                if (!fp[p]) {
+                    continue;
+                }
+                posicion[0] = p;
+                for (int o = 0; o < obstetras; o++) {
+                    if (!fo[o]) {
+                        continue;
+                    }
+                    posicion[1] = o;
+                    for (int a = 0; a < anios; a++) {
+                        if (!fa[a]) {
+                            continue;
+                        }
+                        posicion[2] = a;
+                        for (int m = 0; m < MESES; m++) {
+                            if (!fm[m]) {
+                                continue;
+                            }
+                            posicion[3] = m;
+                            int base = celda(p, o, a, m, 0, 0);
+                            for (int d = 0; d < DIAS; d++, base += ESTADOS) {
+                                if (!fd[d]) {
+                                    continue;
+                                }
+                                posicion[4] = d;
+                                for (int e = 0; e < ESTADOS; e++) {
+                                    int c = conteos[base + e];
+                                    if (c == 0 || !fe[e]) {
+                                        continue;
+                                    }
+                                    posicion[5] = e;
+                                    int g = posicion[porDimension.ordinal()];
+                                    total[g] += c;
+                                    if (e == Cita.ESTADO_ATENDIDO) {
+                                        atendidas[g] += c;
+                                    } else if (e == Cita.ESTADO_CANCELADO) {
+                                        canceladas[g] += c;
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            for (int g = 0; g < grupos; g++) {
+                if (total[g] > 0) {
+                    Medidas medidas = new Medidas();
+                    medidas.total = total[g];
+                    medidas.atendidas = atendidas[g];
+                    medidas.canceladas = canceladas[g];
+                    resultado.put(miembro(porDimension, g), medidas);
+                }
+            }
+            return resultado;
+        }
+
+        Map<Integer, Medidas> agruparPorRango(Filtro filtro, LocalDate desde, LocalDate hasta, Dimension porDimension) {
+            Map<Integer, Medidas> resultado = new TreeMap<>();
+            int obstetras = idObstetra.length;
+            boolean[] fp = mascara(Dimension.PROGRAMA, filtro != null ? filtro.get(Dimension.PROGRAMA) : null);
+            boolean[] fo = mascara(Dimension.OBSTETRA, filtro != null ? filtro.get(Dimension.OBSTETRA) : null);
+            int primero = desde != null ? (int) Math.max(0, ChronoUnit.DAYS.between(primerDia, desde)) : 0;
+            int ultimoDia = (int) ChronoUnit.DAYS.between(primerDia, primerDia.plusYears(anios)) - 1; // getTamano() - 1 de cada árbol
+            int ultimo = hasta != null ? (int) Math.min(ultimoDia, ChronoUnit.DAYS.between(primerDia, hasta)) : ultimoDia;
+            for (int p = 0; p < idPrograma.length; p++) {
+                if (!fp[p]) {
+                    continue;
+                }
+                for (int o = 0; o < obstetras; o++) {
+                    if (!fo[o]) {
+                        continue;
+                    }
+                    int par = p * obstetras + o;
+                    int total = porDia[TOTAL][par].rango(primero, ultimo);
+                    if (total == 0) {
+                        continue;
+                    }
+                    Medidas m = resultado.computeIfAbsent(porDimension == Dimension.PROGRAMA ? idPrograma[p] : idObstetra[o], clave -> new Medidas());
+                    m.total += total;
+                    m.atendidas += porDia[ATENDIDAS][par].rango(primero, ultimo);
+                    m.canceladas += porDia[CANCELADAS][par].rango(primero, ultimo);
+                }
+            }
+            return resultado;
+        }
+
+        // false si la cita cae fuera de las dimensiones actuales (miembro nuevo)
+        boolean cabe(int programa, int obstetra, Timestamp fecha) {
+            int a = fecha.toLocalDateTime().getYear() - anioMinimo;
+            return indicePrograma.containsKey(programa) && indiceObstetra.containsKey(obstetra) && a >= 0 && a < anios;
+        }
+
+        // Cuenta la cita en su celda, restando la celda anterior si ya estaba contada.
+        // false si la cita cae fuera de las dimensiones actuales (miembro nuevo).
+        boolean contar(int idCita, int programa, int obstetra, Timestamp fecha, int estado) {
+            if (!cabe(programa, obstetra, fecha)) {
+                return false;
+            }
+            if (estado < 0 || estado >= ESTADOS) {
+                return true; // Estado desconocido: no se cuenta
+            }
+            LocalDateTime f = fecha.toLocalDateTime();
+            int nueva = celda(indicePrograma.get(programa), indiceObstetra.get(obstetra), f.getYear() - anioMinimo,
+                    f.getMonthValue() - 1, f.getDayOfWeek().getValue() - 1, estado);
+            int dia = (int) ChronoUnit.DAYS.between(primerDia, f.toLocalDate());
+            if (idCita >= celdaPorCita.length) {
+                int capacidad = Math.max(idCita + 1, celdaPorCita.length * 2);
+                celdaPorCita = Arrays.copyOf(celdaPorCita, capacidad);
+                diaPorCita = Arrays.copyOf(diaPorCita, capacidad);
+            }
+            int anterior = celdaPorCita[idCita] - 1;
+            if (anterior == nueva && diaPorCita[idCita] == dia) {
+                return true;
+            }
+            if (anterior >= 0) {
+                conteos[anterior]--;
+                contarDia(anterior, diaPorCita[idCita], -1);
+            } else {
+                citas++;
+            }
+            conteos[nueva]++;
+            contarDia(nueva, dia, 1);
+            celdaPorCita[idCita] = nueva + 1;
+            diaPorCita[idCita] = dia;
+            return true;
+        }
+
+        // El par programa-obstetra y el estado salen de la posición de la celda
+        private void contarDia(int celda, int dia, int delta) {
+            int par = celda / (anios * MESES * DIAS * ESTADOS);
+            int estado = celda % ESTADOS;
+            porDia[TOTAL][par].sumar(dia, delta);
+            if (estado == Cita.ESTADO_ATENDIDO) {
+                porDia[ATENDIDAS][par].sumar(dia, delta);
+            } else if (estado == Cita.ESTADO_CANCELADO) {
+                porDia[CANCELADAS][par].sumar(dia, delta);
+            }
+        }
+
+        private int celda(int p, int o, int a, int m, int d, int e) {
+            return ((((p * idObstetra.length + o) * anios + a) * MESES + m) * DIAS + d) * ESTADOS + e;
+        }
+
+        private int tamano(Dimension dimension) {
+            switch (dimension) {
+                case PROGRAMA:
+                    return idPrograma.length;
+                case OBSTETRA:
+                    return idObstetra.length;
+                case ANIO:
+                    return anios;
+                case MES:
+                    return MESES;
+                case DIA_SEMANA:
+                    return DIAS;
+                default:
+                    return ESTADOS;
+            }
+        }
+
+        // Posición en la dimensión -> valor que ve quien consulta
+        private int miembro(Dimension dimension, int posicion) {
+            switch (dimension) {
+                case PROGRAMA:
+                    return idPrograma[posicion];
+                case OBSTETRA:
+                    return idObstetra[posicion];
+                case ANIO:
+                    return anioMinimo + posicion;
+                case MES:
+                case DIA_SEMANA:
+                    return posicion + 1;
+                default:
+                    return posicion;
+            }
+        }
+
+        // Posiciones incluidas por el filtro de una dimensión (todas si no se fijó)
+        private boolean[] mascara(Dimension dimension, Set<Integer> valores) {
+            boolean[] incluida = new boolean[tamano(dimension)];
+            for (int i = 0; i < incluida.length; i++) {
+                incluida[i] = valores == null || valores.contains(miembro(dimension, i));
+            }
+            return incluida;
+        }
+    }
+}
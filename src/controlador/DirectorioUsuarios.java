@@ -0,0 +1,138 @@
+package controlador;
+
+import conexion.Conexion;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import modelo.UsuarioResumen;
+
+// Directorio de usuarios en memoria, indexado por id y por DNI.
+// Solo guarda datos públicos (UsuarioResumen); contraseñas y respuestas de seguridad nunca se cargan aquí.
+// ControladorUsuario lo invalida al registrar, modificar, eliminar, bloquear o desbloquear,
+// y se vuelve a leer de la base en el siguiente acceso.
+public final class DirectorioUsuarios {
+
+    private static final DirectorioUsuarios INSTANCIA = new DirectorioUsuarios();
+
+    private final AtomicLong versiones = new AtomicLong();
+    private volatile Instantanea actual;
+
+    private DirectorioUsuarios() {
+    }
+
+    public static DirectorioUsuarios getInstancia() {
+        return INSTANCIA;
+    }
+
+    // null si no hay usuario con ese DNI (activo o no)
+    public UsuarioResumen buscarPorDni(String dni) {
+        if (dni == null) {
+            return null;
+        }
+        return instantanea().porDni.get(dni.trim());
+    }
+
+    public UsuarioResumen buscarPorId(int id) {
+        return instantanea().porId.get(id);
+    }
+
+    // Nombre del usuario activo con ese DNI, o null (mismo criterio que la consulta con estado = 1)
+    public String obtenerNombreActivoPorDni(String dni) {
+        UsuarioResumen u = buscarPorDni(dni);
+        return u != null && u.isActivo() ? u.getNombreCompleto() : null;
+    }
+
+    public List<UsuarioResumen> listar() {
+        return new ArrayList<>(instantanea().porId.values());
+    }
+
+    public long getVersion() {
+        return instantanea().version;
+    }
+
+    // Descarta la copia en memoria; se recarga en el próximo acceso
+    public void invalidar() {
+        actual = null;
+    }
+
+    public synchronized void refrescar() {
+        Instantanea nueva = cargar();
+        if (nueva != null) {
+            actual = nueva;
+        }
+    }
+
+    private Instantanea instantanea() {
+        Instantanea i = actual;
+        if (i == null) {
+            synchronized (this) {
+                i = actual;
+                if (i == null) {
+                    i = cargar();
+                    if (i == null) {
+                        return Instantanea.VACIA;
+                    }
+                    actual = i;
+                }
+            }
+        }
+        return i;
+    }
+
+    private Instantanea cargar() {
+        Map<Integer, UsuarioResumen> porId = new HashMap<>();
+        Map<String, UsuarioResumen> porDni = new HashMap<>();
+        String sql = "SELECT id, nombre_completo, usuario, dni, rol, estado FROM usuarios";
+        try (Connection con = Conexion.conectar()) {
+            if (con == null) {
+                return null;
+            }
+            try (PreparedStatement ps = con.prepareStatement(sql); ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    UsuarioResumen u = new UsuarioResumen(
+                            rs.getInt(1),
+                            rs.getString(2),
+                            rs.getString(3),
+                            rs.getString(4),
+                            rs.getString(5),
+                            rs.getInt(6)
+                    );
+                    porId.put(u.getId(), u);
+                    if (u.getDni() != null) {
+                        // Si un DNI quedó repetido (usuario dado de baja y otro nuevo), gana el activo
+                        UsuarioResumen previo = porDni.get(u.getDni().trim());
+                        if (previo == null || !previo.isActivo()) {
+                            porDni.put(u.getDni().trim(), u);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al cargar el directorio de usuarios: " + e.getMessage());
+            return null;
+        }
+        return new Instantanea(porId, porDni, versiones.incrementAndGet());
+    }
+
+    private static final class Instantanea {
+
+        static final Instantanea VACIA = new Instantanea(new HashMap<>(), new HashMap<>(), 0);
+
+        final Map<Integer, UsuarioResumen> porId;
+        final Map<String, UsuarioResumen> porDni;
+        final long version;
+
+        Instantanea(Map<Integer, UsuarioResumen> porId, Map<String, UsuarioResumen> porDni, long version) {
+            this.porId = Collections.unmodifiableMap(porId);
+            this.porDni = Collections.unmodifiableMap(porDni);
+            this.version = version;
+        }
+    }
+}
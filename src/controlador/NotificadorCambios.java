@@ -0,0 +1,202 @@
+package controlador;
+
+import conexion.Conexion;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Avisa a esta instancia de la aplicación de las escrituras hechas por otras instancias sobre la misma base.
+//
+// - Cada escritura de los controladores llama a registrarCambio(tabla): se invalidan las caches locales
+//   y se incrementa la versión de la tabla en cambios_tablas (migración V2).
+// - Un hilo revisa cambios_tablas cada cambios.intervalo.ms. Si la versión de una tabla subió por una
+//   escritura de otra instancia, se invalidan las caches locales que la leen y se avisa a los oyentes
+//   (ventanas con tablas abiertas) para que recarguen.
+// - Los cambios propios no se vuelven a avisar: al escribir ya se conoce la nueva versión.
+//   Los oyentes que mantienen datos derivados (por ejemplo CuboCitas) pueden pedir también los propios.
+//
+// Solo ve lo que escribe la aplicación; un cambio hecho a mano en la base se nota cuando vence el TTL
+// de CacheConsultas.
+public final class NotificadorCambios {
+
+    private static final NotificadorCambios INSTANCIA = new NotificadorCambios();
+
+    // Recibe las tablas que cambiaron; se llama desde el hilo de revisión
+    public interface Oyente {
+
+        void tablasCambiadas(Set<String> tablas);
+    }
+
+    private final List<Oyente> oyentes = new CopyOnWriteArrayList<>();
+    private final List<Oyente> oyentesConPropios = new CopyOnWriteArrayList<>(); // También escrituras de esta instancia
+    private final Map<String, Long> versionesVistas = new HashMap<>(); // Protegido por this
+    private ScheduledExecutorService revisor;
+    private boolean errorInformado; // Protegido por this; evita repetir el mismo error en cada revisión
+
+    private NotificadorCambios() {
+    }
+
+    public static NotificadorCambios getInstancia() {
+        return INSTANCIA;
+    }
+
+    // Arranca la revisión periódica (una sola vez). No hace nada si el intervalo configurado es 0.
+    public synchronized void iniciar() {
+        if (revisor != null) {
+            return;
+        }
+        long intervalo = Conexion.getConfiguracion().getIntervaloCambiosMs();
+        if (intervalo <= 0) {
+            return;
+        }
+        revisor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "notificador-cambios");
+            t.setDaemon(true);
+            return t;
+        });
+        revisor.scheduleWithFixedDelay(this::revisar, 0, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void detener() {
+        if (revisor != null) {
+            revisor.shutdownNow();
+            revisor = null;
+        }
+    }
+
+    public void agregarOyente(Oyente oyente) {
+        agregarOyente(oyente, false);
+    }
+
+    // Con incluirPropios el oyente recibe además, en el hilo que escribe, los cambios de esta instancia
+    public void agregarOyente(Oyente oyente, boolean incluirPropios) {
+        (incluirPropios ? oyentesConPropios : oyentes).add(oyente);
+        iniciar();
+    }
+
+    public void quitarOyente(Oyente oyente) {
+        oyentes.remove(oyente);
+        oyentesConPropios.remove(oyente);
+    }
+
+    // Llamar después de escribir en las tablas dadas
+    public void registrarCambio(String... tablas) {
+        incrementarVersiones(tablas);
+        if (!oyentesConPropios.isEmpty()) {
+            avisar(oyentesConPropios, new LinkedHashSet<>(Arrays.asList(tablas)));
+        }
+    }
+
+    // El incremento y la lectura de la nueva versión se hacen bajo el mismo candado que la revisión,
+    // así la revisión nunca confunde un cambio propio con uno ajeno.
+    private synchronized void incrementarVersiones(String... tablas) {
+        CacheConsultas.getInstancia().invalidar(tablas);
+        String sqlIncremento = "UPDATE cambios_tablas SET version = version + 1 WHERE tabla = ?";
+        String sqlVersion = "SELECT version FROM cambios_tablas WHERE tabla = ?";
+        try (Connection con = Conexion.conectar()) {
+            if (con == null) {
+                return;
+            }
+            for (String tabla : tablas) {
+                try (PreparedStatement ps = con.prepareStatement(sqlIncremento)) {
+                    ps.setString(1, tabla);
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = con.prepareStatement(sqlVersion)) {
+                    ps.setString(1, tabla);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            marcarPropio(tabla, rs.getLong(1));
+                        }
+                    }
+                }
+            }
+            errorInformado = false;
+        } catch (SQLException e) {
+            informarError(e);
+        }
+    }
+
+    // Una revisión de cambios_tablas; la llama el hilo periódico (pública para poder forzarla)
+    public void revisar() {
+        Set<String> cambiadas = leerCambios();
+        if (!cambiadas.isEmpty()) {
+            publicar(cambiadas); // Fuera del candado: los oyentes pueden tardar
+        }
+    }
+
+    private synchronized Set<String> leerCambios() {
+        Set<String> cambiadas = new LinkedHashSet<>();
+        try (Connection con = Conexion.conectar()) {
+            if (con == null) {
+                return cambiadas;
+            }
+            try (PreparedStatement ps = con.prepareStatement("SELECT tabla, version FROM cambios_tablas"); ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String tabla = rs.getString(1);
+                    long version = rs.getLong(2);
+                    Long vista = versionesVistas.put(tabla, version);
+                    // La primera lectura solo fija el punto de partida
+                    if (vista != null && version > vista) {
+                        cambiadas.add(tabla);
+                    }
+                }
+            }
+            errorInformado = false;
+        } catch (SQLException e) {
+            informarError(e);
+        }
+        return cambiadas;
+    }
+
+    // Si nadie más escribió desde la última versión vista, la nueva es solo nuestra: no se avisa
+    private void marcarPropio(String tabla, long nueva) {
+        Long vista = versionesVistas.get(tabla);
+        if (vista != null && vista == nueva - 1) {
+            versionesVistas.put(tabla, nueva);
+        }
+    }
+
+    private void publicar(Set<String> tablas) {
+        String[] arreglo = tablas.toArray(new String[0]);
+        CacheConsultas.getInstancia().invalidar(arreglo);
+        if (tablas.contains(CacheConsultas.USUARIOS)) {
+            DirectorioUsuarios.getInstancia().invalidar();
+        }
+        if (tablas.contains(CacheConsultas.PACIENTES)) {
+            BuscadorPacientes.getInstancia().invalidarTodo();
+            ControladorPaciente.invalidarCacheCompleta();
+        }
+        avisar(oyentesConPropios, tablas);
+        avisar(oyentes, tablas);
+    }
+
+    private static void avisar(List<Oyente> destinatarios, Set<String> tablas) {
+        for (Oyente o : destinatarios) {
+            try {
+                o.tablasCambiadas(tablas);
+            } catch (RuntimeException e) {
+                System.err.println("Error al avisar un cambio de tablas: " + e);
+            }
+        }
+    }
+
+    // Por ejemplo, sin la tabla cambios_tablas (migraciones desactivadas) o sin conexión
+    private void informarError(SQLException e) {
+        if (!errorInformado) {
+            errorInformado = true;
+            System.err.println("No se pudo usar cambios_tablas para detectar cambios de otras instancias: " + e.getMessage());
+        }
+    }
+}
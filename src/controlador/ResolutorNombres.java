@@ -0,0 +1,136 @@
+package controlador;
+
+import conexion.Conexion;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+// Resuelve nombres (paciente, DNI de paciente, obstetra, programa) por id en lotes.
+//
+// Uso: crear uno por unidad de trabajo, pedir todos los ids que hagan falta (cada pedido devuelve
+// un CompletableFuture) y luego llamar a despachar(): se hace una sola consulta IN por tipo de entidad
+// y se completan todos los futuros. Un id pedido dos veces comparte el mismo futuro.
+// Los ids que no existen se completan con null. Si la consulta falla, también con null (y se registra el error).
+//
+// No es seguro entre hilos: cada hilo o tarea usa su propia instancia.
+public class ResolutorNombres {
+
+    // Muy por debajo del límite de 2100 parámetros de SQL Server
+    private static final int MAXIMO_POR_CONSULTA = 500;
+
+    private final Map<Integer, CompletableFuture<String[]>> pacientes = new HashMap<>(); // {nombre, dni}
+    private final Map<Integer, CompletableFuture<String>> obstetras = new HashMap<>();
+    private final Set<Integer> pacientesPendientes = new LinkedHashSet<>();
+    private final Set<Integer> obstetrasPendientes = new LinkedHashSet<>();
+
+    public CompletableFuture<String> nombrePaciente(int idPaciente) {
+        return paciente(idPaciente).thenApply(datos -> datos != null ? datos[0] : null);
+    }
+
+    public CompletableFuture<String> dniPaciente(int idPaciente) {
+        return paciente(idPaciente).thenApply(datos -> datos != null ? datos[1] : null);
+    }
+
+    public CompletableFuture<String> nombreObstetra(int idObstetra) {
+        return obstetras.computeIfAbsent(idObstetra, id -> {
+            obstetrasPendientes.add(id);
+            return new CompletableFuture<>();
+        });
+    }
+
+    // Los programas ya están en memoria (CatalogoProgramas): el futuro se devuelve completo
+    public CompletableFuture<String> nombrePrograma(int idPrograma) {
+        return CompletableFuture.completedFuture(CatalogoProgramas.getInstancia().getNombre(idPrograma));
+    }
+
+    private CompletableFuture<String[]> paciente(int idPaciente) {
+        return pacientes.computeIfAbsent(idPaciente, id -> {
+            pacientesPendientes.add(id);
+            return new CompletableFuture<>();
+        });
+    }
+
+    // Ejecuta las consultas pendientes y completa los futuros. Se puede llamar varias veces;
+    // los resultados ya resueltos quedan guardados para el resto de la unidad de trabajo.
+    public void despachar() {
+        if (pacientesPendientes.isEmpty() && obstetrasPendientes.isEmpty()) {
+            return;
+        }
+        List<Integer> idsPacientes = new ArrayList<>(pacientesPendientes);
+        List<Integer> idsObstetras = new ArrayList<>(obstetrasPendientes);
+        pacientesPendientes.clear();
+        obstetrasPendientes.clear();
+
+        Map<Integer, String[]> datosPacientes = new HashMap<>();
+        Map<Integer, String> nombresObstetras = new HashMap<>();
+        try (Connection con = Conexion.conectar()) {
+            if (con != null) {
+                for (List<Integer> lote : partir(idsPacientes)) {
+                    try (PreparedStatement ps = con.prepareStatement("SELECT id, nombre_completo, dni FROM pacientes WHERE id IN (" + marcadores(lote.size()) + ")")) {
+                        asignar(ps, lote);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                datosPacientes.put(rs.getInt(1), new String[]{rs.getString(2), rs.getString(3)});
+                            }
+                        }
+                    }
+                }
+                for (List<Integer> lote : partir(idsObstetras)) {
+                    try (PreparedStatement ps = con.prepareStatement("SELECT id, nombre_completo FROM usuarios WHERE id IN (" + marcadores(lote.size()) + ")")) {
+                        asignar(ps, lote);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                nombresObstetras.put(rs.getInt(1), rs.getString(2));
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al resolver nombres por lote: " + e.getMessage());
+        }
+
+        for (Integer id : idsPacientes) {
+            pacientes.get(id).complete(datosPacientes.get(id));
+        }
+        for (Integer id : idsObstetras) {
+            obstetras.get(id).complete(nombresObstetras.get(id));
+        }
+    }
+
+    private static List<List<Integer>> partir(List<Integer> ids) {
+        List<List<Integer>> lotes = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += MAXIMO_POR_CONSULTA) {
+            lotes.add(ids.subList(i, Math.min(ids.size(), i + MAXIMO_POR_CONSULTA)));
+        }
+        return lotes;
+    }
+
+    // La cantidad de marcadores se redondea a potencia de dos (repitiendo el último id) para que haya
+    // pocas variantes de la sentencia y se reutilicen los planes y la cache de sentencias preparadas
+    private static String marcadores(int cantidad) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < relleno(cantidad); i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+
+    private static void asignar(PreparedStatement ps, List<Integer> ids) throws SQLException {
+        for (int i = 0; i < relleno(ids.size()); i++) {
+            ps.setInt(i + 1, ids.get(Math.min(i, ids.size() - 1)));
+        }
+    }
+
+    private static int relleno(int cantidad) {
+        return Math.min(MAXIMO_POR_CONSULTA, Integer.highestOneBit(Math.max(1, cantidad - 1)) << 1);
+    }
+}
@@ -0,0 +1,72 @@
+package modelo;
+
+import java.sql.Timestamp;
+
+// Fila de solo lectura para los listados de citas (cita + nombres de paciente, obstetra y programa)
+public final class CitaDetalle {
+
+    private final int idCita;
+    private final Timestamp fechaCita;
+    private final int estadoCita;
+    private final String observaciones;
+    private final Timestamp fechaRegistro;
+    private final String dniPaciente;
+    private final String nombrePaciente;
+    private final String nombreObstetra;
+    private final String nombrePrograma;
+
+    public CitaDetalle(int idCita, Timestamp fechaCita, int estadoCita, String observaciones, Timestamp fechaRegistro,
+            String dniPaciente, String nombrePaciente, String nombreObstetra, String nombrePrograma) {
+        this.idCita = idCita;
+        this.fechaCita = fechaCita;
+        this.estadoCita = estadoCita;
+        this.observaciones = observaciones;
+        this.fechaRegistro = fechaRegistro;
+        this.dniPaciente = dniPaciente;
+        this.nombrePaciente = nombrePaciente;
+        this.nombreObstetra = nombreObstetra;
+        this.nombrePrograma = nombrePrograma;
+    }
+
+    public int getIdCita() {
+        return idCita;
+    }
+
+    public Timestamp getFechaCita() {
+        return fechaCita;
+    }
+
+    public int getEstadoCita() {
+        return estadoCita;
+    }
+
+    public String getObservaciones() {
+        return observaciones;
+    }
+
+    public Timestamp getFechaRegistro() {
+        return fechaRegistro;
+    }
+
+    public String getDniPaciente() {
+        return dniPaciente;
+    }
+
+    public String getNombrePaciente() {
+        return nombrePaciente;
+    }
+
+    public String getNombreObstetra() {
+        return nombreObstetra;
+    }
+
+    public String getNombrePrograma() {
+        return nombrePrograma;
+    }
+
+    // Copia con otro estado (tras marcar atendida o cancelar, sin volver a consultar)
+    public CitaDetalle conEstado(int nuevoEstado) {
+        return new CitaDetalle(idCita, fechaCita, nuevoEstado, observaciones, fechaRegistro,
+                dniPaciente, nombrePaciente, nombreObstetra, nombrePrograma);
+    }
+}
@@ -0,0 +1,27 @@
+package modelo;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+
+// Filas leídas junto con la marca de modificación (fecha_modificacion) hasta la que llegan.
+// El siguiente refresco pide solo lo modificado desde esa marca.
+public final class Delta<T> {
+
+    private final List<T> filas;
+    private final Timestamp marca;
+
+    public Delta(List<T> filas, Timestamp marca) {
+        this.filas = Collections.unmodifiableList(filas);
+        this.marca = marca;
+    }
+
+    public List<T> getFilas() {
+        return filas;
+    }
+
+    // null si la tabla estaba vacía
+    public Timestamp getMarca() {
+        return marca;
+    }
+}
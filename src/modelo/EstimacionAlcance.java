@@ -0,0 +1,32 @@
+package modelo;
+
+// Cantidad estimada de pacientes distintos (HyperLogLog) de un grupo, con su error relativo (desvío estándar)
+public final class EstimacionAlcance {
+
+    private final String grupo;
+    private final long estimado;
+    private final double errorRelativo;
+
+    public EstimacionAlcance(String grupo, long estimado, double errorRelativo) {
+        this.grupo = grupo;
+        this.estimado = estimado;
+        this.errorRelativo = errorRelativo;
+    }
+
+    public String getGrupo() {
+        return grupo;
+    }
+
+    public long getEstimado() {
+        return estimado;
+    }
+
+    public double getErrorRelativo() {
+        return errorRelativo;
+    }
+
+    // Margen del 95 % (dos desvíos), en pacientes
+    public long getMargen95() {
+        return Math.round(estimado * errorRelativo * 2);
+    }
+}
@@ -0,0 +1,37 @@
+package modelo;
+
+// Datos mínimos de un paciente para autocompletar por DNI (id, nombre, DNI y estado)
+public final class PacienteResumen {
+
+    private final int id;
+    private final String nombreCompleto;
+    private final String dni;
+    private final int estado;
+
+    public PacienteResumen(int id, String nombreCompleto, String dni, int estado) {
+        this.id = id;
+        this.nombreCompleto = nombreCompleto;
+        this.dni = dni;
+        this.estado = estado;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getNombreCompleto() {
+        return nombreCompleto;
+    }
+
+    public String getDni() {
+        return dni;
+    }
+
+    public int getEstado() {
+        return estado;
+    }
+
+    public boolean isActivo() {
+        return estado == 1;
+    }
+}
@@ -0,0 +1,40 @@
+package modelo;
+
+import java.util.Collections;
+import java.util.List;
+
+// Una página de resultados junto con el total de filas que cumplen el filtro
+public final class Pagina<T> {
+
+    private final List<T> filas;
+    private final int numeroPagina;
+    private final int tamanoPagina;
+    private final int totalFilas;
+
+    public Pagina(List<T> filas, int numeroPagina, int tamanoPagina, int totalFilas) {
+        this.filas = Collections.unmodifiableList(filas);
+        this.numeroPagina = numeroPagina;
+        this.tamanoPagina = tamanoPagina;
+        this.totalFilas = totalFilas;
+    }
+
+    public List<T> getFilas() {
+        return filas;
+    }
+
+    public int getNumeroPagina() {
+        return numeroPagina;
+    }
+
+    public int getTamanoPagina() {
+        return tamanoPagina;
+    }
+
+    public int getTotalFilas() {
+        return totalFilas;
+    }
+
+    public int getTotalPaginas() {
+        return tamanoPagina <= 0 ? 0 : (totalFilas + tamanoPagina - 1) / tamanoPagina;
+    }
+}
@@ -0,0 +1,31 @@
+package modelo;
+
+// Fila de estadísticas por programa preventivo: total de citas y cuántas fueron atendidas
+public final class ProgramaEstadistica {
+
+    private final String programa;
+    private final int total;
+    private final int atendidas;
+
+    public ProgramaEstadistica(String programa, int total, int atendidas) {
+        this.programa = programa;
+        this.total = total;
+        this.atendidas = atendidas;
+    }
+
+    public String getPrograma() {
+        return programa;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getAtendidas() {
+        return atendidas;
+    }
+
+    public double getPorcentaje() {
+        return total == 0 ? 0 : (atendidas * 100.0 / total);
+    }
+}
@@ -0,0 +1,9 @@
+package modelo;
+
+// Resultado de registrar una cita en una sola operación atómica
+public enum ResultadoRegistroCita {
+    CREADA,             // Insertada; el id generado quedó en cita.getIdCita()
+    DUPLICADA,          // El paciente ya tiene una cita de ese programa en el mismo año
+    PACIENTE_INVALIDO,  // El paciente no existe o está dado de baja
+    ERROR               // Error de base de datos (ver log)
+}
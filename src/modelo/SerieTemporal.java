@@ -0,0 +1,42 @@
+package modelo;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+// Serie de un programa preventivo: total de citas y atendidas por período (mes o semana).
+// Incluye todos los períodos del rango, con cero donde no hubo citas. Es inmutable.
+public final class SerieTemporal {
+
+    private final String programa;
+    private final List<LocalDate> periodos; // Primer día de cada período
+    private final int[] totales;
+    private final int[] atendidas;
+
+    public SerieTemporal(String programa, List<LocalDate> periodos, int[] totales, int[] atendidas) {
+        this.programa = programa;
+        this.periodos = List.copyOf(periodos);
+        this.totales = Arrays.copyOf(totales, totales.length);
+        this.atendidas = Arrays.copyOf(atendidas, atendidas.length);
+    }
+
+    public String getPrograma() {
+        return programa;
+    }
+
+    public int getCantidadPeriodos() {
+        return periodos.size();
+    }
+
+    public LocalDate getPeriodo(int i) {
+        return periodos.get(i);
+    }
+
+    public int getTotal(int i) {
+        return totales[i];
+    }
+
+    public int getAtendidas(int i) {
+        return atendidas[i];
+    }
+}
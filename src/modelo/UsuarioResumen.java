@@ -0,0 +1,49 @@
+package modelo;
+
+// Datos públicos de un usuario (sin contraseña ni respuesta de seguridad) para búsquedas en memoria
+public final class UsuarioResumen {
+
+    private final int id;
+    private final String nombreCompleto;
+    private final String usuario;
+    private final String dni;
+    private final String rol;
+    private final int estado;
+
+    public UsuarioResumen(int id, String nombreCompleto, String usuario, String dni, String rol, int estado) {
+        this.id = id;
+        this.nombreCompleto = nombreCompleto;
+        this.usuario = usuario;
+        this.dni = dni;
+        this.rol = rol;
+        this.estado = estado;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getNombreCompleto() {
+        return nombreCompleto;
+    }
+
+    public String getUsuario() {
+        return usuario;
+    }
+
+    public String getDni() {
+        return dni;
+    }
+
+    public String getRol() {
+        return rol;
+    }
+
+    public int getEstado() {
+        return estado;
+    }
+
+    public boolean isActivo() {
+        return estado == 1;
+    }
+}
@@ -0,0 +1,43 @@
+package utilidades;
+
+// Árbol de Fenwick (binary indexed tree) de enteros: suma de un rango y cambio de un valor en O(log n).
+// Los índices van de 0 a tamano - 1. No es seguro entre hilos: quien lo usa debe sincronizar.
+public final class ArbolFenwick {
+
+    private final int[] arbol; // Posición 0 sin usar
+
+    public ArbolFenwick(int tamano) {
+        arbol = new int[tamano + 1];
+    }
+
+    public int getTamano() {
+        return arbol.length - 1;
+    }
+
+    public void sumar(int indice, int delta) {
+        for (int i = indice + 1; i < arbol.length; i += i & -i) {
+            arbol[i] += delta;
+        }
+    }
+
+    // Suma de los valores 0..indice (0 si indice < 0)
+    public int prefijo(int indice) {
+        int suma = 0;
+        for (int i = Math.min(indice, arbol.length - 2) + 1; i > 0; i -= i & -i) {
+            suma += arbol[i];
+        }
+        return suma;
+    }
+
+    // Suma de los valores desde..hasta inclusive; los extremos fuera de rango se recortan
+    public int rango(int desde, int hasta) {
+        if (hasta < desde) {
+            return 0;
+        }
+        return prefijo(hasta) - prefijo(desde - 1);
+    }
+
+    public int valor(int indice) {
+        return rango(indice, indice);
+    }
+}
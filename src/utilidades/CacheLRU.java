@@ -0,0 +1,63 @@
+package utilidades;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+// Cache pequeña con desalojo LRU (la entrada usada hace más tiempo sale primero).
+// Todos los métodos están sincronizados: se comparte entre vistas y hilos de fondo.
+public class CacheLRU<K, V> {
+
+    private final int capacidad;
+    private final LinkedHashMap<K, V> mapa;
+    private long aciertos;
+    private long fallos;
+
+    public CacheLRU(int capacidad) {
+        this.capacidad = capacidad;
+        this.mapa = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > CacheLRU.this.capacidad;
+            }
+        };
+    }
+
+    public synchronized V get(K clave) {
+        V valor = mapa.get(clave);
+        if (valor != null) {
+            aciertos++;
+        } else {
+            fallos++;
+        }
+        return valor;
+    }
+
+    public synchronized void put(K clave, V valor) {
+        mapa.put(clave, valor);
+    }
+
+    public synchronized void remove(K clave) {
+        mapa.remove(clave);
+    }
+
+    public synchronized void removeIf(Predicate<V> condicion) {
+        mapa.values().removeIf(condicion);
+    }
+
+    public synchronized void clear() {
+        mapa.clear();
+    }
+
+    public synchronized int size() {
+        return mapa.size();
+    }
+
+    public synchronized long getAciertos() {
+        return aciertos;
+    }
+
+    public synchronized long getFallos() {
+        return fallos;
+    }
+}
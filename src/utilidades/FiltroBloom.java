@@ -0,0 +1,62 @@
+package utilidades;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
+// Filtro de Bloom para cadenas: responde "seguro que no está" o "puede estar".
+// No tiene falsos negativos para lo que se agregó; la tasa de falsos positivos se fija al crearlo.
+// Los métodos están sincronizados: se comparte entre hilos de fondo.
+public class FiltroBloom {
+
+    private final BitSet bits;
+    private final int cantidadBits;
+    private final int cantidadHashes;
+
+    // capacidadEsperada: elementos que se piensan agregar; probabilidadFalsos: por ejemplo 0.01
+    public FiltroBloom(int capacidadEsperada, double probabilidadFalsos) {
+        int n = Math.max(1, capacidadEsperada);
+        double m = -n * Math.log(probabilidadFalsos) / (Math.log(2) * Math.log(2));
+        this.cantidadBits = (int) Math.max(64, Math.min(Integer.MAX_VALUE - 1, Math.ceil(m)));
+        this.cantidadHashes = Math.max(1, (int) Math.round((double) cantidadBits / n * Math.log(2)));
+        this.bits = new BitSet(cantidadBits);
+    }
+
+    public synchronized void agregar(String valor) {
+        long h = hash64(valor);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 0; i < cantidadHashes; i++) {
+            bits.set(posicion(h1 + i * h2));
+        }
+    }
+
+    // false: el valor nunca se agregó. true: probablemente se agregó.
+    public synchronized boolean puedeContener(String valor) {
+        long h = hash64(valor);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 0; i < cantidadHashes; i++) {
+            if (!bits.get(posicion(h1 + i * h2))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int posicion(int combinado) {
+        return (combinado & Integer.MAX_VALUE) % cantidadBits;
+    }
+
+    // FNV-1a de 64 bits con mezcla final; las dos mitades se usan como hashes independientes
+    private static long hash64(String valor) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : valor.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,196 @@
+package vista;
+
+import controlador.ConsultaCancelable;
+import controlador.NotificadorCambios;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.swing.JFrame;
+import javax.swing.JLayeredPane;
+import javax.swing.JOptionPane;
+import javax.swing.JProgressBar;
+import javax.swing.SwingUtilities;
+import modelo.Usuario;
+import utilidades.AppSesion;
+
+// Ejecuta el trabajo con la base de datos fuera del hilo de Swing (EDT) y entrega el resultado en el EDT.
+//
+// - Cada ventana crea su propio cargador; todas comparten un pequeño grupo de hilos.
+// - Mientras haya tareas pendientes se muestra una barra de progreso en la esquina inferior derecha.
+// - El usuario de la sesión se lee en el EDT al encolar la tarea y se pasa explícitamente al trabajo:
+//   el hilo de fondo nunca consulta AppSesion.
+// - Una tarea cancelada (o cuya ventana se cerró) no ejecuta sus callbacks. Si el trabajo pasa la
+//   ConsultaCancelable recibida al controlador, además se cancela la sentencia JDBC en curso
+//   (Statement.cancel): lo hacen las consultas de estadísticas, que son las que pueden tardar segundos.
+//   Las demás consultas terminan solas y su resultado se descarta.
+//
+// - alCambiar() suscribe la ventana a los cambios hechos por otras instancias (NotificadorCambios)
+//   mientras esté abierta.
+//
+// Todos los métodos públicos deben llamarse desde el EDT.
+public class CargadorSegundoPlano {
+
+    private static final AtomicInteger HILOS = new AtomicInteger();
+    private static final ExecutorService EJECUTOR = Executors.newFixedThreadPool(3, r -> {
+        Thread t = new Thread(r, "vista-bd-" + HILOS.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Trabajo que corre en segundo plano; puede lanzar cualquier excepción (se informa en el EDT)
+    public interface Trabajo<T> {
+
+        T ejecutar(Usuario usuario, ConsultaCancelable cancelacion) throws Exception;
+    }
+
+    private final JFrame ventana;
+    private final JProgressBar barra = new JProgressBar();
+    private final List<Tarea<?>> pendientes = new ArrayList<>(); // Solo se usa en el EDT
+    private final List<NotificadorCambios.Oyente> oyentes = new ArrayList<>();
+
+    public CargadorSegundoPlano(JFrame ventana) {
+        this.ventana = ventana;
+        barra.setIndeterminate(true);
+        barra.setVisible(false);
+        barra.setToolTipText("Consultando la base de datos...");
+        JLayeredPane capas = ventana.getLayeredPane();
+        capas.add(barra, JLayeredPane.PALETTE_LAYER);
+        capas.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                ubicarBarra();
+            }
+        });
+        ventana.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                cancelarTodo();
+                for (NotificadorCambios.Oyente o : oyentes) {
+                    NotificadorCambios.getInstancia().quitarOyente(o);
+                }
+                oyentes.clear();
+            }
+        });
+    }
+
+    public <T> Tarea<T> ejecutar(Trabajo<T> trabajo, Consumer<T> alTerminar) {
+        return ejecutar(trabajo, alTerminar, null);
+    }
+
+    // alFallar es opcional: si es null se registra el error y se muestra un mensaje genérico
+    public <T> Tarea<T> ejecutar(Trabajo<T> trabajo, Consumer<T> alTerminar, Consumer<Exception> alFallar) {
+        Usuario usuario = AppSesion.getInstance().getUsuarioLogueado();
+        Tarea<T> tarea = new Tarea<>();
+        pendientes.add(tarea);
+        actualizarIndicador();
+        tarea.futuro = EJECUTOR.submit(() -> {
+            T resultado = null;
+            Exception error = null;
+            try {
+                resultado = trabajo.ejecutar(usuario, tarea.cancelacion);
+            } catch (Exception e) {
+                error = e;
+            }
+            T r = resultado;
+            Exception err = error;
+            SwingUtilities.invokeLater(() -> terminar(tarea, r, err, alTerminar, alFallar));
+        });
+        return tarea;
+    }
+
+    private <T> void terminar(Tarea<T> tarea, T resultado, Exception error, Consumer<T> alTerminar, Consumer<Exception> alFallar) {
+        if (tarea.isCancelada()) {
+            return;
+        }
+        pendientes.remove(tarea);
+        actualizarIndicador();
+        if (error != null) {
+            if (alFallar != null) {
+                alFallar.accept(error);
+            } else {
+                System.err.println("Error en tarea de segundo plano: " + error);
+                JOptionPane.showMessageDialog(ventana, "Error al consultar la base de datos.", "Error", JOptionPane.ERROR_MESSAGE);
+            }
+            return;
+        }
+        if (alTerminar != null) {
+            alTerminar.accept(resultado);
+        }
+    }
+
+    // Ejecuta la acción en el EDT cada vez que otra instancia escribe en alguna de las tablas
+    public void alCambiar(Runnable accion, String... tablas) {
+        List<String> interesan = Arrays.asList(tablas);
+        NotificadorCambios.Oyente oyente = cambiadas -> {
+            if (cambiadas.stream().anyMatch(interesan::contains)) {
+                SwingUtilities.invokeLater(() -> {
+                    if (ventana.isDisplayable()) {
+                        accion.run();
+                    }
+                });
+            }
+        };
+        oyentes.add(oyente);
+        NotificadorCambios.getInstancia().agregarOyente(oyente);
+    }
+
+    public void cancelarTodo() {
+        for (Tarea<?> t : new ArrayList<>(pendientes)) {
+            t.cancelar();
+        }
+    }
+
+    public boolean isOcupado() {
+        return !pendientes.isEmpty();
+    }
+
+    private void actualizarIndicador() {
+        boolean ocupado = !pendientes.isEmpty();
+        if (barra.isVisible() != ocupado) {
+            ubicarBarra();
+            barra.setVisible(ocupado);
+        }
+    }
+
+    private void ubicarBarra() {
+        JLayeredPane capas = ventana.getLayeredPane();
+        int ancho = 140;
+        int alto = 12;
+        barra.setBounds(capas.getWidth() - ancho - 8, capas.getHeight() - alto - 8, ancho, alto);
+    }
+
+    // Referencia a una tarea encolada
+    public class Tarea<T> {
+
+        private final ConsultaCancelable cancelacion = new ConsultaCancelable();
+        private volatile boolean cancelada;
+        private Future<?> futuro;
+
+        // Descarta el resultado y, si es posible, corta la consulta en curso
+        public void cancelar() {
+            if (cancelada) {
+                return;
+            }
+            cancelada = true;
+            cancelacion.cancelar();
+            if (futuro != null) {
+                futuro.cancel(false);
+            }
+            pendientes.remove(this);
+            actualizarIndicador();
+        }
+
+        public boolean isCancelada() {
+            return cancelada;
+        }
+    }
+}
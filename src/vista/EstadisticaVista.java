@@ -1,10 +1,20 @@
 package vista;
 
+import controlador.CacheConsultas;
+import controlador.CatalogoProgramas;
+import controlador.ContadoresCitas;
 import controlador.ControladorCita;
 import controlador.ControladorUsuario;
+import modelo.EstimacionAlcance;
+import modelo.ProgramaEstadistica;
+import modelo.SerieTemporal;
 import com.toedter.calendar.JDateChooser;
 import java.util.List;
 import java.util.ArrayList;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -12,6 +22,7 @@ import java.awt.*;
 import java.awt.event.*;
 import java.util.*;
 import org.jfree.chart.*;
+import org.jfree.chart.axis.CategoryLabelPositions;
 import org.jfree.chart.plot.*;
 import org.jfree.data.category.DefaultCategoryDataset;
 import org.jfree.data.general.DefaultPieDataset;
@@ -21,13 +32,30 @@ public class EstadisticaVista extends JFrame {
     private JTextField txtDNI;
     private JTextField txtNombreObstetra;
     private JCheckBox[] chkProgramas;
-    private JDateChooser calendario;
+    private JDateChooser fechaDesde;
+    private JDateChooser fechaHasta;
     private JTable tabla;
     private DefaultTableModel modeloTabla;
     private ControladorCita controladorCita;
     private ControladorUsuario controladorUsuario;
     private JPanel panelGrafico;
-    private String[] nombresProgramas = {"Papanicolaou", "IVA", "VPH", "Consejería", "Examen de mamas"};
+    private String[] nombresProgramas;
+
+    // Los filtros esperan a que el usuario deje de escribir antes de consultar
+    private static final int ESPERA_FILTROS_MS = 300;
+    private javax.swing.Timer temporizadorFiltros;
+    private final CargadorSegundoPlano cargador = new CargadorSegundoPlano(this);
+    // Consulta en segundo plano en curso; al cambiar los filtros se cancela y su resultado se descarta
+    private CargadorSegundoPlano.Tarea<Resultados> consultaEnCurso;
+    private JLabel lblAlcance;
+    private String tipoGraficoActual = "barras";
+    // El gráfico lineal muestra la tendencia mensual de los últimos meses hasta el mes elegido;
+    // el semanal, la de las últimas semanas hasta la semana de "Hasta"
+    private static final int MESES_TENDENCIA = 24;
+    private static final int SEMANAS_TENDENCIA = 26;
+    private static final DateTimeFormatter FORMATO_MES = DateTimeFormatter.ofPattern("yyyy-MM");
+    private static final DateTimeFormatter FORMATO_SEMANA = DateTimeFormatter.ofPattern("dd/MM/yy");
+    private CargadorSegundoPlano.Tarea<List<SerieTemporal>> tendenciaEnCurso;
 
     public EstadisticaVista() {
         setTitle("Estadísticas de Programas Preventivos");
@@ -37,6 +65,7 @@ public class EstadisticaVista extends JFrame {
 
         controladorCita = new ControladorCita();
         controladorUsuario = new ControladorUsuario();
+        nombresProgramas = CatalogoProgramas.getInstancia().getNombres().toArray(new String[0]);
 
         JPanel panelFiltros = new JPanel(new GridLayout(4, 1));
         panelFiltros.setBorder(BorderFactory.createTitledBorder("Filtros"));
@@ -56,11 +85,8 @@ public class EstadisticaVista extends JFrame {
             public void keyReleased(KeyEvent e) {
                 String dni = txtDNI.getText();
                 if (!dni.isEmpty()) {
-                    txtNombreObstetra.setText(controladorUsuario.listar().stream()
-                            .filter(u -> dni.equals(u.getDni()))
-                            .map(u -> u.getNombreCompleto())
-                            .findFirst()
-                            .orElse("No encontrado"));
+                    String nombre = controladorUsuario.obtenerNombrePorDni(dni);
+                    txtNombreObstetra.setText(nombre != null ? nombre : "No encontrado");
                 } else {
                     txtNombreObstetra.setText("");
                 }
@@ -77,12 +103,17 @@ public class EstadisticaVista extends JFrame {
         }
         panelFiltros.add(panelProgramas);
 
-        // Filtro por fecha
+        // Filtro por rango de fechas (por defecto, el mes actual)
         JPanel panelFecha = new JPanel(new FlowLayout(FlowLayout.LEFT));
-        panelFecha.add(new JLabel("Fecha:"));
-        calendario = new JDateChooser();
-        calendario.setDate(new java.util.Date());
-        panelFecha.add(calendario);
+        YearMonth mesActual = YearMonth.now();
+        panelFecha.add(new JLabel("Desde:"));
+        fechaDesde = new JDateChooser();
+        fechaDesde.setDate(aFecha(mesActual.atDay(1)));
+        panelFecha.add(fechaDesde);
+        panelFecha.add(new JLabel("Hasta:"));
+        fechaHasta = new JDateChooser();
+        fechaHasta.setDate(aFecha(mesActual.atEndOfMonth()));
+        panelFecha.add(fechaHasta);
         panelFiltros.add(panelFecha);
 
         // Botones para graficar
@@ -91,6 +122,8 @@ public class EstadisticaVista extends JFrame {
         JButton btnBarras = new JButton("Gráfico de Barras");
         JButton btnCircular = new JButton("Gráfico Circular");
         JButton btnLineal = new JButton("Gráfico Lineal");
+        JButton btnSemanal = new JButton("Tendencia Semanal");
+        JButton btnVerificar = new JButton("Verificar contadores");
         JButton btnVolver = new JButton("Volver");
 
         btnVolver.setBackground(new Color(220, 53, 69));
@@ -101,6 +134,8 @@ public class EstadisticaVista extends JFrame {
         panelBotones.add(btnBarras);
         panelBotones.add(btnCircular);
         panelBotones.add(btnLineal);
+        panelBotones.add(btnSemanal);
+        panelBotones.add(btnVerificar);
         panelBotones.add(btnVolver);
 
         panelFiltros.add(panelBotones);
@@ -112,7 +147,7 @@ public class EstadisticaVista extends JFrame {
         });
 
         // Tabla
-        modeloTabla = new DefaultTableModel(new Object[]{"Programa", "Total", "Atendidas", "Porcentaje"}, 0);
+        modeloTabla = new DefaultTableModel(new Object[]{"Programa", "Total", "Atendidas", "Porcentaje", "Pacientes únicos (aprox.)"}, 0);
         tabla = new JTable(modeloTabla);
         JScrollPane scroll = new JScrollPane(tabla);
 
@@ -125,33 +160,58 @@ public class EstadisticaVista extends JFrame {
         btnBarras.addActionListener(e -> graficar("barras"));
         btnCircular.addActionListener(e -> graficar("circular"));
         btnLineal.addActionListener(e -> graficar("lineal"));
+        btnSemanal.addActionListener(e -> graficar("semanal"));
+        btnVerificar.addActionListener(e -> verificarContadores(btnVerificar));
 
         // Layout principal
         JPanel contenedor = new JPanel(new BorderLayout());
         contenedor.add(panelFiltros, BorderLayout.NORTH);
-        contenedor.add(scroll, BorderLayout.CENTER);
+        // Pacientes distintos atendidos: se estima con bocetos HyperLogLog, se muestra con su margen de error
+        lblAlcance = new JLabel(" ");
+        lblAlcance.setBorder(BorderFactory.createEmptyBorder(4, 8, 4, 8));
+        JPanel panelTabla = new JPanel(new BorderLayout());
+        panelTabla.add(scroll, BorderLayout.CENTER);
+        panelTabla.add(lblAlcance, BorderLayout.SOUTH);
+        contenedor.add(panelTabla, BorderLayout.CENTER);
         contenedor.add(panelGrafico, BorderLayout.SOUTH);
 
         add(contenedor);
+
+        temporizadorFiltros = new javax.swing.Timer(ESPERA_FILTROS_MS, e -> actualizarTablaYGrafico("barras"));
+        temporizadorFiltros.setRepeats(false);
         actualizarTablaYGrafico("barras"); // por defecto
 
-        // Actualizar al cambiar filtros
-        ActionListener listener = e -> actualizarTablaYGrafico("barras");
+        // Actualizar al cambiar filtros (con espera, para no consultar en cada tecla o clic)
+        ActionListener listener = e -> temporizadorFiltros.restart();
         for (JCheckBox chk : chkProgramas) {
             chk.addActionListener(listener);
         }
-        calendario.getDateEditor().addPropertyChangeListener(e -> actualizarTablaYGrafico("barras"));
+        // El rango se resuelve en memoria (contadores diarios de CuboCitas): se actualiza sin esperar
+        fechaDesde.getDateEditor().addPropertyChangeListener("date", e -> actualizarTablaYGrafico("barras"));
+        fechaHasta.getDateEditor().addPropertyChangeListener("date", e -> actualizarTablaYGrafico("barras"));
+        // Citas registradas o modificadas desde otro equipo: el cubo aplica solo esos cambios
+        cargador.alCambiar(() -> actualizarTablaYGrafico(tipoGraficoActual), CacheConsultas.CITAS);
         txtDNI.addKeyListener(new KeyAdapter() {
             public void keyReleased(KeyEvent e) {
-                actualizarTablaYGrafico("barras");
+                temporizadorFiltros.restart();
             }
         });
     }
 
+    @Override
+    public void dispose() {
+        temporizadorFiltros.stop();
+        super.dispose(); // El cargador cancela la consulta pendiente al cerrarse la ventana
+    }
+
+    // Lee los filtros en el hilo de Swing y consulta el cubo en segundo plano (la primera vez lo arma desde la base)
     private void actualizarTablaYGrafico(String tipoGrafico) {
-        modeloTabla.setRowCount(0);
+        if (consultaEnCurso != null) {
+            consultaEnCurso.cancelar();
+        }
         String dni = txtDNI.getText().trim();
-        Date fecha = calendario.getDate();
+        LocalDate desde = aLocalDate(fechaDesde.getDate());
+        LocalDate hasta = aLocalDate(fechaHasta.getDate());
         List<String> programasSeleccionados = new ArrayList<>();
         for (JCheckBox chk : chkProgramas) {
             if (chk.isSelected()) {
@@ -159,25 +219,57 @@ public class EstadisticaVista extends JFrame {
             }
         }
 
-        List<Map<String, Object>> datos = controladorCita.obtenerEstadisticasPorProgramaFiltrado(
-                dni.isEmpty() ? null : dni,
-                programasSeleccionados,
-                fecha
-        );
+        consultaEnCurso = cargador.ejecutar(
+                (usuario, cancelacion) -> {
+                    String filtroDni = dni.isEmpty() ? null : dni;
+                    Resultados r = new Resultados();
+                    r.estadisticas = controladorCita.obtenerEstadisticasPorProgramaEnRango(filtroDni, programasSeleccionados, desde, hasta, cancelacion);
+                    r.alcance = controladorCita.obtenerAlcancePorPrograma(filtroDni, programasSeleccionados, desde, hasta, cancelacion);
+                    r.alcanceTotal = controladorCita.obtenerAlcanceTotal(filtroDni, programasSeleccionados, desde, hasta, cancelacion);
+                    return r;
+                },
+                r -> {
+                    consultaEnCurso = null;
+                    mostrarDatos(r, tipoGrafico);
+                });
+    }
 
-        for (Map<String, Object> fila : datos) {
+    private void mostrarDatos(Resultados r, String tipoGrafico) {
+        Map<String, EstimacionAlcance> alcancePorPrograma = new HashMap<>();
+        for (EstimacionAlcance e : r.alcance) {
+            alcancePorPrograma.put(e.getGrupo(), e);
+        }
+        modeloTabla.setRowCount(0);
+        for (ProgramaEstadistica fila : r.estadisticas) {
+            EstimacionAlcance alcance = alcancePorPrograma.get(fila.getPrograma());
             modeloTabla.addRow(new Object[]{
-                fila.get("programa"),
-                fila.get("total"),
-                fila.get("atendidas"),
-                String.format("%.2f%%", fila.get("porcentaje"))
+                fila.getPrograma(),
+                fila.getTotal(),
+                fila.getAtendidas(),
+                String.format("%.2f%%", fila.getPorcentaje()),
+                alcance != null ? String.format("≈ %d ± %d", alcance.getEstimado(), alcance.getMargen95()) : "0"
             });
         }
+        if (r.alcanceTotal != null) {
+            lblAlcance.setText(String.format("Pacientes únicos atendidos (meses completos del rango): ≈ %d ± %d (95%%, error relativo %.1f%%)",
+                    r.alcanceTotal.getEstimado(), r.alcanceTotal.getMargen95(), r.alcanceTotal.getErrorRelativo() * 100));
+        } else {
+            lblAlcance.setText("Pacientes únicos atendidos (meses completos del rango): 0");
+        }
 
         graficar(tipoGrafico);
     }
 
     private void graficar(String tipo) {
+        tipoGraficoActual = tipo;
+        if (tendenciaEnCurso != null) {
+            tendenciaEnCurso.cancelar();
+            tendenciaEnCurso = null;
+        }
+        if ("lineal".equals(tipo) || "semanal".equals(tipo)) {
+            graficarTendencia("semanal".equals(tipo));
+            return;
+        }
         panelGrafico.removeAll();
 
         if (modeloTabla.getRowCount() == 0) {
@@ -208,19 +300,96 @@ public class EstadisticaVista extends JFrame {
                 JFreeChart chart = ChartFactory.createPieChart("Distribución por Programa", dataset, true, true, false);
                 panelGrafico.add(new ChartPanel(chart), BorderLayout.CENTER);
             }
-            case "lineal" -> {
-                DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-                for (int i = 0; i < modeloTabla.getRowCount(); i++) {
-                    String programa = modeloTabla.getValueAt(i, 0).toString();
-                    int atendidas = Integer.parseInt(modeloTabla.getValueAt(i, 2).toString() + "");
-                    dataset.addValue(atendidas, "Atendidas", programa);
-                }
-                JFreeChart chart = ChartFactory.createLineChart("Tendencia de Atención", "Programa", "Cantidad", dataset, PlotOrientation.VERTICAL, false, true, false);
-                panelGrafico.add(new ChartPanel(chart), BorderLayout.CENTER);
-            }
         }
 
         panelGrafico.revalidate();
         panelGrafico.repaint();
     }
+
+    // Mantenimiento a pedido: compara estadisticas_citas con las citas y, si no coinciden, los reconstruye
+    private void verificarContadores(JButton boton) {
+        boton.setEnabled(false);
+        cargador.ejecutar(
+                (usuario, cancelacion) -> ContadoresCitas.getInstancia().verificarYReparar(),
+                diferencias -> {
+                    boton.setEnabled(true);
+                    if (diferencias < 0) {
+                        JOptionPane.showMessageDialog(this, "No se pudieron verificar los contadores de citas.", "Error", JOptionPane.ERROR_MESSAGE);
+                    } else if (diferencias == 0) {
+                        JOptionPane.showMessageDialog(this, "Los contadores de citas coinciden con las citas registradas.");
+                    } else {
+                        JOptionPane.showMessageDialog(this, "Se encontraron " + diferencias + " contadores desactualizados y se reconstruyeron.");
+                    }
+                });
+    }
+
+    private static Date aFecha(LocalDate fecha) {
+        return Date.from(fecha.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static LocalDate aLocalDate(Date fecha) {
+        return fecha != null ? fecha.toInstant().atZone(ZoneId.systemDefault()).toLocalDate() : null;
+    }
+
+    // Atendidas por mes (o por semana, de lunes a domingo) de cada programa marcado, en los MESES_TENDENCIA meses
+    // (SEMANAS_TENDENCIA semanas) que terminan en el de "Hasta".
+    // Las series salen de una sola consulta agrupada (en cache por rango hasta la próxima escritura en citas).
+    private void graficarTendencia(boolean semanal) {
+        String dni = txtDNI.getText().trim();
+        String filtroDni = dni.isEmpty() ? null : dni;
+        LocalDate fin = aLocalDate(fechaHasta.getDate());
+        if (fin == null) {
+            fin = LocalDate.now();
+        }
+        LocalDate hastaDia = fin;
+        YearMonth hasta = YearMonth.from(fin);
+        YearMonth desde = hasta.minusMonths(MESES_TENDENCIA - 1);
+        LocalDate desdeDia = fin.minusWeeks(SEMANAS_TENDENCIA - 1);
+        Set<String> programasMarcados = new HashSet<>();
+        for (JCheckBox chk : chkProgramas) {
+            if (chk.isSelected()) {
+                programasMarcados.add(chk.getText());
+            }
+        }
+        DateTimeFormatter formato = semanal ? FORMATO_SEMANA : FORMATO_MES;
+
+        tendenciaEnCurso = cargador.ejecutar(
+                (usuario, cancelacion) -> semanal
+                        ? controladorCita.obtenerSeriesSemanales(desdeDia, hastaDia, filtroDni, cancelacion)
+                        : controladorCita.obtenerSeriesMensuales(desde, hasta, filtroDni, cancelacion),
+                series -> {
+                    tendenciaEnCurso = null;
+                    DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+                    for (SerieTemporal serie : series) {
+                        if (!programasMarcados.isEmpty() && !programasMarcados.contains(serie.getPrograma())) {
+                            continue;
+                        }
+                        for (int i = 0; i < serie.getCantidadPeriodos(); i++) {
+                            dataset.addValue(serie.getAtendidas(i), serie.getPrograma(), formato.format(serie.getPeriodo(i)));
+                        }
+                    }
+                    panelGrafico.removeAll();
+                    if (dataset.getRowCount() == 0) {
+                        panelGrafico.add(new JLabel("Sin datos para graficar"), BorderLayout.CENTER);
+                    } else {
+                        String titulo = semanal
+                                ? "Tendencia Semanal (semanas del " + FORMATO_SEMANA.format(series.get(0).getPeriodo(0)) + " al " + FORMATO_SEMANA.format(hastaDia) + ")"
+                                : "Tendencia de Atención (" + FORMATO_MES.format(desde) + " a " + FORMATO_MES.format(hasta) + ")";
+                        JFreeChart chart = ChartFactory.createLineChart(titulo, semanal ? "Semana (lunes)" : "Mes", "Atendidas",
+                                dataset, PlotOrientation.VERTICAL, true, true, false);
+                        chart.getCategoryPlot().getDomainAxis().setCategoryLabelPositions(CategoryLabelPositions.UP_45);
+                        panelGrafico.add(new ChartPanel(chart), BorderLayout.CENTER);
+                    }
+                    panelGrafico.revalidate();
+                    panelGrafico.repaint();
+                });
+    }
+
+    // Lo que trae una consulta en segundo plano: estadísticas del rango y alcance estimado
+    private static final class Resultados {
+
+        List<ProgramaEstadistica> estadisticas;
+        List<EstimacionAlcance> alcance;
+        EstimacionAlcance alcanceTotal;
+    }
 }
@@ -0,0 +1,49 @@
+package vista;
+
+import java.util.Date;
+import javax.swing.RowFilter;
+import modelo.CitaDetalle;
+
+// Filtro en memoria de la tabla de citas: estado, rango de fechas, obstetra y texto libre.
+// Las páginas ya llegan con el estado elegido; aquí se vuelve a mirar por las filas que cambian de estado al refrescar.
+public class FiltroCitas extends RowFilter<ModeloTablaCitas, Integer> {
+
+    private final int estado;        // -1 = todos
+    private final Date desde;        // null = sin límite
+    private final Date hasta;        // null = sin límite (inclusive)
+    private final String obstetra;   // null = todos
+    private final String texto;      // en minúsculas; null = sin texto
+
+    public FiltroCitas(int estado, Date desde, Date hasta, String obstetra, String texto) {
+        this.estado = estado;
+        this.desde = desde;
+        this.hasta = hasta;
+        this.obstetra = obstetra;
+        this.texto = texto == null || texto.isBlank() ? null : texto.trim().toLowerCase();
+    }
+
+    // true si no filtra nada (se puede quitar el filtro del sorter)
+    public boolean isVacio() {
+        return estado == -1 && desde == null && hasta == null && obstetra == null && texto == null;
+    }
+
+    @Override
+    public boolean include(Entry<? extends ModeloTablaCitas, ? extends Integer> entry) {
+        ModeloTablaCitas modelo = entry.getModel();
+        int fila = entry.getIdentifier();
+        CitaDetalle cita = modelo.getCita(fila);
+        if (estado != -1 && cita.getEstadoCita() != estado) {
+            return false;
+        }
+        if (desde != null && cita.getFechaCita().before(desde)) {
+            return false;
+        }
+        if (hasta != null && cita.getFechaCita().after(hasta)) {
+            return false;
+        }
+        if (obstetra != null && !obstetra.equals(cita.getNombreObstetra())) {
+            return false;
+        }
+        return texto == null || modelo.getTextoBusqueda(fila).contains(texto);
+    }
+}
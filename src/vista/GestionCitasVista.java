@@ -1,7 +1,12 @@
 package vista;
 
+import controlador.CacheConsultas;
 import controlador.ControladorCita;
 import modelo.Cita; // Para las constantes de estado
+import modelo.CitaDetalle;
+import modelo.Delta;
+import modelo.PacienteResumen;
+import modelo.ResultadoRegistroCita;
 import modelo.Usuario; // Necesitas el objeto Usuario loggeado
 import java.awt.Color; // Necesitas esto para cambiar el color del texto
 import java.awt.event.FocusAdapter; // Para los listeners de foco
@@ -10,16 +15,15 @@ import java.awt.event.KeyAdapter; // Para los listeners de teclado
 import java.awt.event.KeyEvent; // Para los listeners de teclado
 import java.sql.Timestamp;
 import java.util.LinkedHashMap;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.HashMap; // Para el mapa de programas
 import java.util.List;
 import java.util.Map; // Para el mapa de programas
+import java.util.TreeSet;
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.JOptionPane;
 import javax.swing.JTextField; // Importar JTextField
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableRowSorter;
 import com.toedter.calendar.JDateChooser;
 import utilidades.AppSesion;
 
@@ -31,11 +35,43 @@ public class GestionCitasVista extends javax.swing.JFrame {
     private Map<Integer, String> programasMap;
     private Map<String, Integer> estadosFiltroMap;
 
+    // Paginación de la tabla de citas
+    private static final int TAMANO_PAGINA_CITAS = 100;
+    private static final int FILAS_ANTES_DEL_FINAL = 20; // Se pide la siguiente página al quedar estas filas por ver
+    private final ModeloTablaCitas modeloCitas = new ModeloTablaCitas();
+    // El estado se filtra en el servidor (las páginas traen solo ese estado); fechas, obstetra y texto en memoria
+    private final TableRowSorter<ModeloTablaCitas> ordenadorCitas = new TableRowSorter<>(modeloCitas);
+    private final JDateChooser chooserFiltroDesde = new JDateChooser();
+    private final JDateChooser chooserFiltroHasta = new JDateChooser();
+    private final javax.swing.JComboBox<String> cmbFiltroObstetra = new javax.swing.JComboBox<>();
+    private final JTextField txtFiltroTexto = new JTextField();
+    private final TreeSet<String> obstetrasCargados = new TreeSet<>();
+    private static final String TODOS_LOS_OBSTETRAS = "Todos los obstetras";
+    private CitaDetalle ultimaCitaCargada;
+    // fecha_modificacion hasta la que llegan las filas cargadas; el refresco pide solo lo posterior
+    private Timestamp marcaCitas;
+    private boolean hayMasCitas;
+    private boolean cargandoPagina;
+    private int estadoCargado = -1; // Estado con el que se pidieron las páginas cargadas (-1 = todos)
+    // Páginas pedidas solas (scroll o vista filtrada sin llenar) que casi no sumaron filas visibles.
+    // Al llegar al límite se muestra "Cargar más" en lugar de seguir trayendo historial.
+    private static final int PAGINAS_SIN_AVANCE = 5;
+    private int paginasSinAvance;
+    private final javax.swing.JButton btnCargarMas = new javax.swing.JButton("Cargar más");
+
+    // Todo el acceso a la base de esta ventana corre en segundo plano
+    private final CargadorSegundoPlano cargador = new CargadorSegundoPlano(this);
+    private CargadorSegundoPlano.Tarea<Delta<CitaDetalle>> tareaPagina;
+    private CargadorSegundoPlano.Tarea<Delta<CitaDetalle>> tareaRefresco;
+    private CargadorSegundoPlano.Tarea<PacienteResumen> tareaNombrePaciente;
+    private final javax.swing.Timer esperaDni = new javax.swing.Timer(250, e -> buscarNombrePaciente());
+
     public GestionCitasVista() { // <-- Constructor sin parámetros
         // Ya no se asigna this.usuarioLogueado aquí.
         // Se obtendrá de AppSesion cuando se necesite.
         initComponents();
         this.setLocationRelativeTo(null);
+        esperaDni.setRepeats(false);
 
         setPlaceholder(txtHoraCita, "HH:MM");
 
@@ -45,7 +81,16 @@ public class GestionCitasVista extends javax.swing.JFrame {
         cargarProgramasPreventivos();
         inicializarEstadosFiltro();
         cargarFiltroEstados();
-        cargarTablaCitas(-1);
+        tableCitas.setModel(modeloCitas);
+        ModeloTablaCitas.instalarRenderizadores(tableCitas);
+        instalarFiltrosLocales();
+        instalarScrollInfinito();
+        cargarTablaCitas();
+        // Citas registradas o cambiadas desde otra instancia (los filtros locales se conservan)
+        // Citas de otra instancia: solo las filas modificadas. Un cambio de nombres de pacientes
+        // u obstetras no toca citas.fecha_modificacion, así que ahí se recarga completo.
+        cargador.alCambiar(this::refrescarCambiosCitas, CacheConsultas.CITAS);
+        cargador.alCambiar(this::cargarTablaCitas, CacheConsultas.PACIENTES, CacheConsultas.USUARIOS);
         limpiarCampos();
 
         txtDniPaciente.addKeyListener(new java.awt.event.KeyAdapter() {
@@ -54,12 +99,6 @@ public class GestionCitasVista extends javax.swing.JFrame {
             }
         });
 
-        cmbFiltroEstadoCita.addActionListener(new java.awt.event.ActionListener() {
-            public void actionPerformed(java.awt.event.ActionEvent evt) {
-                cmbFiltroEstadoCitaActionPerformed(evt);
-            }
-        });
-
         // Listener para el JComboBox de filtro
         cmbFiltroEstadoCita.addActionListener(new java.awt.event.ActionListener() {
             public void actionPerformed(java.awt.event.ActionEvent evt) {
@@ -68,6 +107,12 @@ public class GestionCitasVista extends javax.swing.JFrame {
         });
     }
 
+    @Override
+    public void dispose() {
+        esperaDni.stop();
+        super.dispose(); // El cargador cancela las consultas pendientes al cerrarse la ventana
+    }
+
     // NUEVO: Método para inicializar el mapa de estados de filtro
     private void inicializarEstadosFiltro() {
         estadosFiltroMap = new LinkedHashMap<>(); // Mantiene el orden de inserción
@@ -136,8 +181,17 @@ public class GestionCitasVista extends javax.swing.JFrame {
     }
 
     private void cargarProgramasPreventivos() {
-        // Obtener programas del controlador
-        programasMap = controladorCita.obtenerProgramasPreventivos();
+        // Mientras llegan los programas solo se muestra la opción por defecto
+        programasMap = new LinkedHashMap<>();
+        DefaultComboBoxModel<String> vacio = new DefaultComboBoxModel<>();
+        vacio.addElement("Seleccione un programa");
+        cmbProgramaPreventivo.setModel(vacio);
+
+        cargador.ejecutar((usuario, cancelacion) -> controladorCita.obtenerProgramasPreventivos(), this::mostrarProgramasPreventivos);
+    }
+
+    private void mostrarProgramasPreventivos(Map<Integer, String> programas) {
+        programasMap = programas;
 
         DefaultComboBoxModel<String> model = new DefaultComboBoxModel<>();
         model.addElement("Seleccione un programa"); // Opción por defecto
@@ -153,46 +207,257 @@ public class GestionCitasVista extends javax.swing.JFrame {
         cmbProgramaPreventivo.setModel(model);
     }
 
-    // MODIFICADO: Ahora este método acepta un parámetro de estado para filtrar
-    private void cargarTablaCitas(int estado) {
-        DefaultTableModel modelo = new DefaultTableModel();
-        modelo.setColumnIdentifiers(new Object[]{"ID Cita", "Fecha Cita", "DNI Paciente", "Nombre Paciente", "Programa", "Estado", "Obstetra"});
-
-        // Usar el nuevo método del controlador que trae los detalles por estado
-        List<Map<String, Object>> citasConDetalles = controladorCita.listarCitasConDetalles(estado); // Pasa el estado aquí
-
-        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm");
-
-        for (Map<String, Object> citaDetalle : citasConDetalles) {
-            String fechaFormateada = sdf.format((Timestamp) citaDetalle.get("fecha_cita"));
-            String estadoString = "";
-            int estadoInt = (int) citaDetalle.get("estado_cita");
-            switch (estadoInt) {
-                case Cita.ESTADO_PENDIENTE:
-                    estadoString = "PENDIENTE";
-                    break;
-                case Cita.ESTADO_ATENDIDO:
-                    estadoString = "ATENDIDO";
-                    break;
-                case Cita.ESTADO_CANCELADO:
-                    estadoString = "CANCELADO";
-                    break;
-                default:
-                    estadoString = "DESCONOCIDO";
-                    break;
+    // Solo trae la primera página; el resto se pide al acercarse al final del scroll.
+    // Solo el estado vuelve a consultar; los demás filtros se aplican sobre las filas ya cargadas.
+    private void cargarTablaCitas() {
+        modeloCitas.limpiar();
+        ultimaCitaCargada = null;
+        marcaCitas = null;
+        hayMasCitas = true;
+        paginasSinAvance = 0;
+        btnCargarMas.setVisible(false);
+        // La página o el refresco que se estaban pidiendo ya no corresponden
+        if (tareaPagina != null) {
+            tareaPagina.cancelar();
+        }
+        if (tareaRefresco != null) {
+            tareaRefresco.cancelar();
+            tareaRefresco = null;
+        }
+        cargandoPagina = false;
+        cargarSiguientePaginaCitas();
+    }
+
+    private void cargarSiguientePaginaCitas() {
+        if (!hayMasCitas || cargandoPagina) {
+            return;
+        }
+        cargandoPagina = true;
+        CitaDetalle despuesDe = ultimaCitaCargada;
+        int estado = estadoCargado;
+        tareaPagina = cargador.ejecutar(
+                (usuario, cancelacion) -> {
+                    // La marca se lee antes que la primera página: lo que cambie en medio llega en el próximo refresco
+                    Timestamp marca = despuesDe == null ? controladorCita.obtenerMarcaCitas() : null;
+                    return new Delta<>(controladorCita.listarCitasPagina(estado, despuesDe, TAMANO_PAGINA_CITAS), marca);
+                },
+                leida -> {
+                    cargandoPagina = false;
+                    tareaPagina = null;
+                    List<CitaDetalle> pagina = leida.getFilas();
+                    if (despuesDe == null) {
+                        marcaCitas = leida.getMarca();
+                    }
+                    int visiblesAntes = tableCitas.getRowCount();
+                    modeloCitas.agregar(pagina);
+                    if (!pagina.isEmpty()) {
+                        ultimaCitaCargada = pagina.get(pagina.size() - 1);
+                    }
+                    hayMasCitas = pagina.size() == TAMANO_PAGINA_CITAS;
+                    paginasSinAvance = tableCitas.getRowCount() - visiblesAntes >= FILAS_ANTES_DEL_FINAL ? 0 : paginasSinAvance + 1;
+                    if (!hayMasCitas) {
+                        btnCargarMas.setVisible(false);
+                    }
+                    agregarObstetras(pagina);
+                    completarVista();
+                },
+                error -> {
+                    cargandoPagina = false;
+                    tareaPagina = null;
+                    System.err.println("Error al cargar citas: " + error);
+                });
+    }
+
+    // Trae solo las citas insertadas o modificadas desde marcaCitas y las aplica fila por fila
+    private void refrescarCambiosCitas() {
+        if (marcaCitas == null) {
+            cargarTablaCitas(); // Sin marca (tabla vacía o primera página pendiente) no hay con qué comparar
+            return;
+        }
+        if (tareaRefresco != null) {
+            tareaRefresco.cancelar();
+        }
+        Timestamp desde = marcaCitas;
+        tareaRefresco = cargador.ejecutar((usuario, cancelacion) -> controladorCita.listarCitasModificadasDesde(desde), cambios -> {
+            tareaRefresco = null;
+            if (cambios == null) {
+                cargarTablaCitas();
+                return;
             }
+            marcaCitas = cambios.getMarca();
+            modeloCitas.fusionar(cambios.getFilas(), !hayMasCitas);
+            agregarObstetras(cambios.getFilas());
+        });
+    }
 
-            modelo.addRow(new Object[]{
-                citaDetalle.get("id_cita"),
-                fechaFormateada,
-                citaDetalle.get("dni_paciente"),
-                citaDetalle.get("nombre_paciente"),
-                citaDetalle.get("nombre_programa_preventivo"),
-                estadoString,
-                citaDetalle.get("nombre_obstetra")
-            });
+    // Pide la siguiente página cuando el usuario se acerca al final de la tabla
+    private void instalarScrollInfinito() {
+        jScrollPane2.getVerticalScrollBar().addAdjustmentListener(e -> {
+            javax.swing.JScrollBar barra = jScrollPane2.getVerticalScrollBar();
+            int margen = tableCitas.getRowHeight() * FILAS_ANTES_DEL_FINAL;
+            if (barra.getValue() + barra.getVisibleAmount() >= barra.getMaximum() - margen) {
+                pedirPaginaAutomatica();
+            }
+        });
+        btnCargarMas.setToolTipText("Los filtros dejan pocas filas en las últimas páginas: seguir buscando más atrás");
+        btnCargarMas.setVisible(false);
+        btnCargarMas.addActionListener(e -> {
+            paginasSinAvance = 0;
+            btnCargarMas.setVisible(false);
+            cargarSiguientePaginaCitas();
+        });
+        getContentPane().add(btnCargarMas, new org.netbeans.lib.awtextra.AbsoluteConstraints(672, 468, 123, 22), 0);
+    }
+
+    // Si el filtro deja menos filas de las que caben en pantalla, sigue pidiendo páginas
+    private void completarVista() {
+        int visibles = jScrollPane2.getViewport().getHeight() / Math.max(1, tableCitas.getRowHeight());
+        if (tableCitas.getRowCount() < visibles + FILAS_ANTES_DEL_FINAL) {
+            pedirPaginaAutomatica();
         }
-        tableCitas.setModel(modelo);
+    }
+
+    // Página que no pidió el usuario: con un filtro local muy estrecho se corta tras PAGINAS_SIN_AVANCE
+    // páginas sin filas visibles nuevas, así no se recorre todo el historial de a una página
+    private void pedirPaginaAutomatica() {
+        if (!hayMasCitas) {
+            return;
+        }
+        if (paginasSinAvance >= PAGINAS_SIN_AVANCE) {
+            btnCargarMas.setVisible(true);
+            return;
+        }
+        cargarSiguientePaginaCitas();
+    }
+
+    // Controles de filtro local: desde/hasta, obstetra y texto libre (en la columna derecha, bajo el estado)
+    private void instalarFiltrosLocales() {
+        for (int i = 0; i < modeloCitas.getColumnCount(); i++) {
+            ordenadorCitas.setSortable(i, false); // El orden es el del listado (fecha_cita, id_cita)
+        }
+        ordenadorCitas.setSortsOnUpdates(true); // Para que un cambio de estado vuelva a evaluar el filtro
+        tableCitas.setRowSorter(ordenadorCitas);
+
+        javax.swing.JLabel lblDesde = new javax.swing.JLabel("Desde:");
+        javax.swing.JLabel lblHasta = new javax.swing.JLabel("Hasta:");
+        javax.swing.JLabel lblBuscar = new javax.swing.JLabel("Buscar:");
+        lblDesde.setForeground(new java.awt.Color(0, 0, 0));
+        lblHasta.setForeground(new java.awt.Color(0, 0, 0));
+        lblBuscar.setForeground(new java.awt.Color(0, 0, 0));
+        getContentPane().add(lblDesde, new org.netbeans.lib.awtextra.AbsoluteConstraints(672, 344, -1, -1), 0);
+        getContentPane().add(chooserFiltroDesde, new org.netbeans.lib.awtextra.AbsoluteConstraints(715, 340, 80, 22), 0);
+        getContentPane().add(lblHasta, new org.netbeans.lib.awtextra.AbsoluteConstraints(672, 371, -1, -1), 0);
+        getContentPane().add(chooserFiltroHasta, new org.netbeans.lib.awtextra.AbsoluteConstraints(715, 367, 80, 22), 0);
+        getContentPane().add(cmbFiltroObstetra, new org.netbeans.lib.awtextra.AbsoluteConstraints(672, 396, 123, 22), 0);
+        getContentPane().add(lblBuscar, new org.netbeans.lib.awtextra.AbsoluteConstraints(672, 424, -1, -1), 0);
+        getContentPane().add(txtFiltroTexto, new org.netbeans.lib.awtextra.AbsoluteConstraints(672, 440, 123, 22), 0);
+        txtFiltroTexto.setToolTipText("Paciente, DNI, programa u obstetra");
+
+        cmbFiltroObstetra.addItem(TODOS_LOS_OBSTETRAS);
+        cmbFiltroObstetra.addActionListener(e -> aplicarFiltros());
+        chooserFiltroDesde.addPropertyChangeListener("date", e -> aplicarFiltros());
+        chooserFiltroHasta.addPropertyChangeListener("date", e -> aplicarFiltros());
+
+        javax.swing.Timer espera = new javax.swing.Timer(300, e -> aplicarFiltros());
+        espera.setRepeats(false);
+        txtFiltroTexto.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            @Override
+            public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                espera.restart();
+            }
+
+            @Override
+            public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                espera.restart();
+            }
+
+            @Override
+            public void changedUpdate(javax.swing.event.DocumentEvent e) {
+                espera.restart();
+            }
+        });
+    }
+
+    // Arma el filtro con los controles actuales. Un cambio de estado vuelve a pedir las páginas con ese estado;
+    // el resto se filtra sobre las filas cargadas (el estado también, por las filas que cambian al refrescar).
+    private void aplicarFiltros() {
+        Integer estadoElegido = estadosFiltroMap.get((String) cmbFiltroEstadoCita.getSelectedItem());
+        int estado = estadoElegido != null ? estadoElegido : -1;
+        Date desde = limiteDelDia(chooserFiltroDesde.getDate(), false);
+        Date hasta = limiteDelDia(chooserFiltroHasta.getDate(), true);
+        Object obstetra = cmbFiltroObstetra.getSelectedItem();
+        FiltroCitas filtro = new FiltroCitas(estado, desde, hasta,
+                obstetra == null || TODOS_LOS_OBSTETRAS.equals(obstetra) ? null : obstetra.toString(),
+                txtFiltroTexto.getText());
+        ordenadorCitas.setRowFilter(filtro.isVacio() ? null : filtro);
+        paginasSinAvance = 0;
+        btnCargarMas.setVisible(false);
+        if (estado != estadoCargado) {
+            estadoCargado = estado;
+            cargarTablaCitas();
+            return;
+        }
+        completarVista();
+    }
+
+    // Inicio del día, o su último milisegundo si finDelDia (así el "hasta" incluye todo ese día)
+    private static Date limiteDelDia(Date fecha, boolean finDelDia) {
+        if (fecha == null) {
+            return null;
+        }
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(fecha);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        if (finDelDia) {
+            cal.add(Calendar.DAY_OF_MONTH, 1);
+            cal.add(Calendar.MILLISECOND, -1);
+        }
+        return cal.getTime();
+    }
+
+    // Suma al combo de obstetras los nombres nuevos de la página, sin perder la selección
+    private void agregarObstetras(List<CitaDetalle> pagina) {
+        boolean cambio = false;
+        for (CitaDetalle c : pagina) {
+            if (c.getNombreObstetra() != null && obstetrasCargados.add(c.getNombreObstetra())) {
+                cambio = true;
+            }
+        }
+        if (!cambio) {
+            return;
+        }
+        Object seleccionado = cmbFiltroObstetra.getSelectedItem();
+        DefaultComboBoxModel<String> model = new DefaultComboBoxModel<>();
+        model.addElement(TODOS_LOS_OBSTETRAS);
+        for (String nombre : obstetrasCargados) {
+            model.addElement(nombre);
+        }
+        model.setSelectedItem(seleccionado);
+        cmbFiltroObstetra.setModel(model);
+    }
+
+    // Agrega a la tabla la cita recién registrada, sin recargar el resto
+    private void agregarCitaRegistrada(int idCita) {
+        cargador.ejecutar((usuario, cancelacion) -> controladorCita.obtenerCitaDetalle(idCita), detalle -> {
+            if (detalle == null) {
+                return;
+            }
+            // Si cae después de lo ya cargado, llegará con la página que le corresponda
+            if (hayMasCitas && !modeloCitas.estaEnTramoCargado(detalle)) {
+                return;
+            }
+            int filaModelo = modeloCitas.insertar(detalle);
+            agregarObstetras(java.util.Collections.singletonList(detalle));
+            // Si los filtros la ocultan, no hay nada que seleccionar
+            int fila = filaModelo >= 0 ? tableCitas.convertRowIndexToView(filaModelo) : -1;
+            if (fila >= 0) {
+                tableCitas.getSelectionModel().setSelectionInterval(fila, fila);
+                tableCitas.scrollRectToVisible(tableCitas.getCellRect(fila, 0, true));
+            }
+        });
     }
 
     // NUEVO: Acción para el JComboBox de filtro
@@ -201,7 +466,7 @@ public class GestionCitasVista extends javax.swing.JFrame {
         Integer estadoFiltro = estadosFiltroMap.get(estadoSeleccionadoNombre);
 
         if (estadoFiltro != null) {
-            cargarTablaCitas(estadoFiltro);
+            aplicarFiltros(); // Vuelve a pedir las páginas con ese estado
         } else {
             JOptionPane.showMessageDialog(this, "Error al aplicar filtro de estado.", "Error", JOptionPane.ERROR_MESSAGE);
         }
@@ -399,12 +664,6 @@ public class GestionCitasVista extends javax.swing.JFrame {
             return;
         }
 
-        int idPaciente = controladorCita.obtenerIdPacientePorDNI(dniPaciente);
-        if (idPaciente == -1) {
-            JOptionPane.showMessageDialog(this, "El DNI del paciente no está registrado.", "Paciente no encontrado", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-
         Integer idProgramaInteger = null;
         for (Map.Entry<Integer, String> entry : programasMap.entrySet()) {
             if (entry.getValue().equals(programaNombre)) {
@@ -430,7 +689,7 @@ public class GestionCitasVista extends javax.swing.JFrame {
 
         Timestamp fechaHoraCita = new Timestamp(cal.getTimeInMillis());
 
-        // Obtener el ID del obstetra directamente de AppSesion
+        // La sesión se valida aquí; la tarea de fondo recibe el usuario explícitamente
         Usuario obstetraLogueado = AppSesion.getInstance().getUsuarioLogueado();
         if (obstetraLogueado == null) {
             JOptionPane.showMessageDialog(this, "No hay un obstetra logueado. Inicie sesión nuevamente.", "Error de Sesión", JOptionPane.ERROR_MESSAGE);
@@ -439,34 +698,67 @@ public class GestionCitasVista extends javax.swing.JFrame {
             return;
         }
 
-        // Crear objeto Cita
+        // Crear objeto Cita (el paciente y el obstetra se completan en segundo plano)
         Cita nuevaCita = new Cita();
-        nuevaCita.setIdObstetra(obstetraLogueado.getId()); // Usar el ID del obstetra loggeado
-        nuevaCita.setIdPaciente(idPaciente);
         nuevaCita.setFechaCita(fechaHoraCita);
         nuevaCita.setIdPrograma(idPrograma); // Usar ID del programa
         nuevaCita.setEstadoCita(Cita.ESTADO_PENDIENTE); // Estado por defecto (1)
         nuevaCita.setObservaciones(observaciones);
 
-        if (controladorCita.registrarCita(nuevaCita)) {
-            JOptionPane.showMessageDialog(this, "Cita registrada con éxito.", "Registro Exitoso", JOptionPane.INFORMATION_MESSAGE);
-            cargarTablaCitas(Cita.ESTADO_PENDIENTE);
-            limpiarCampos();
-        } else {
-            // Verificar si fue por cita duplicada
-            if (controladorCita.yaTieneCitaEnMismoProgramaEsteAnio(idPaciente, idPrograma, fechaHoraCita)) {
+        btnRegistrarCita.setEnabled(false);
+        cargador.ejecutar((usuario, cancelacion) -> {
+            int idPaciente = controladorCita.obtenerIdPacientePorDNI(dniPaciente);
+            if (idPaciente == -1) {
+                return null; // DNI no registrado
+            }
+
+            nuevaCita.setIdObstetra(usuario.getId()); // Usar el ID del obstetra loggeado
+            nuevaCita.setIdPaciente(idPaciente);
+            return controladorCita.registrarCitaAtomica(nuevaCita);
+        }, resultado -> {
+            btnRegistrarCita.setEnabled(true);
+            mostrarResultadoRegistro(resultado);
+            if (resultado == ResultadoRegistroCita.CREADA) {
+                agregarCitaRegistrada(nuevaCita.getIdCita());
+            }
+        }, error -> {
+            btnRegistrarCita.setEnabled(true);
+            System.err.println("Error al registrar cita: " + error);
+            mostrarResultadoRegistro(ResultadoRegistroCita.ERROR);
+        });
+    }//GEN-LAST:event_btnRegistrarCitaActionPerformed
+
+    // resultado null: el DNI no corresponde a ningún paciente
+    private void mostrarResultadoRegistro(ResultadoRegistroCita resultado) {
+        if (resultado == null) {
+            JOptionPane.showMessageDialog(this, "El DNI del paciente no está registrado.", "Paciente no encontrado", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        switch (resultado) {
+            case CREADA:
+                JOptionPane.showMessageDialog(this, "Cita registrada con éxito.", "Registro Exitoso", JOptionPane.INFORMATION_MESSAGE);
+                limpiarCampos();
+                break;
+            case DUPLICADA:
                 JOptionPane.showMessageDialog(this,
                         "⚠ El paciente ya tiene registrada una cita para este programa en el mismo año.",
                         "Cita duplicada",
                         JOptionPane.WARNING_MESSAGE);
-            } else {
+                break;
+            case PACIENTE_INVALIDO:
+                JOptionPane.showMessageDialog(this,
+                        "El paciente no existe o fue dado de baja.",
+                        "Paciente no válido",
+                        JOptionPane.ERROR_MESSAGE);
+                break;
+            default:
                 JOptionPane.showMessageDialog(this,
                         "Error al registrar la cita.",
                         "Error",
                         JOptionPane.ERROR_MESSAGE);
-            }
+                break;
         }
-    }//GEN-LAST:event_btnRegistrarCitaActionPerformed
+    }
 
 
     private void btnMarcarAtendidoActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btnMarcarAtendidoActionPerformed
@@ -477,25 +769,11 @@ public class GestionCitasVista extends javax.swing.JFrame {
         }
 
         int idCita = (int) tableCitas.getValueAt(filaSeleccionada, 0); // Asume que la ID de la cita está en la primera columna
-        int estadoActual = (int) controladorCita.obtenerEstadoCita(idCita); // Necesitarás crear este método en el controlador
-
-        if (estadoActual == Cita.ESTADO_ATENDIDO) {
-            JOptionPane.showMessageDialog(this, "Esta cita ya está marcada como ATENDIDA.", "Advertencia", JOptionPane.WARNING_MESSAGE);
-            return;
-        }
-
-        int confirm = JOptionPane.showConfirmDialog(this, "¿Está seguro de marcar esta cita como ATENDIDA?", "Confirmar", JOptionPane.YES_NO_OPTION);
-        if (confirm == JOptionPane.YES_OPTION) {
-            if (controladorCita.modificarEstadoCita(idCita, Cita.ESTADO_ATENDIDO)) {
-                JOptionPane.showMessageDialog(this, "Cita marcada como ATENDIDA.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
-                // Después de la acción, recargar la tabla con el filtro actual
-                String estadoSeleccionadoNombre = (String) cmbFiltroEstadoCita.getSelectedItem();
-                Integer estadoFiltro = estadosFiltroMap.get(estadoSeleccionadoNombre);
-                cargarTablaCitas(estadoFiltro);
-            } else {
-                JOptionPane.showMessageDialog(this, "Error al marcar la cita como ATENDIDA.", "Error", JOptionPane.ERROR_MESSAGE);
-            }
-        }
+        cambiarEstadoCita(idCita, Cita.ESTADO_ATENDIDO,
+                "Esta cita ya está marcada como ATENDIDA.",
+                "¿Está seguro de marcar esta cita como ATENDIDA?", JOptionPane.QUESTION_MESSAGE,
+                "Cita marcada como ATENDIDA.",
+                "Error al marcar la cita como ATENDIDA.");
     }//GEN-LAST:event_btnMarcarAtendidoActionPerformed
 
     private void btnLimpiarActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btnLimpiarActionPerformed
@@ -515,44 +793,66 @@ public class GestionCitasVista extends javax.swing.JFrame {
         }
 
         int idCita = (int) tableCitas.getValueAt(filaSeleccionada, 0);
-        int estadoActual = (int) controladorCita.obtenerEstadoCita(idCita); // Necesitarás crear este método en el controlador
+        cambiarEstadoCita(idCita, Cita.ESTADO_CANCELADO,
+                "Esta cita ya está marcada como CANCELADA.",
+                "¿Está seguro de CANCELAR esta cita?", JOptionPane.WARNING_MESSAGE,
+                "Cita CANCELADA con éxito.",
+                "Error al cancelar la cita.");
+    }//GEN-LAST:event_btnCancelarCitaActionPerformed
 
-        if (estadoActual == Cita.ESTADO_CANCELADO) {
-            JOptionPane.showMessageDialog(this, "Esta cita ya está marcada como CANCELADA.", "Advertencia", JOptionPane.WARNING_MESSAGE);
-            return;
-        }
+    // Lee el estado actual en segundo plano, pide confirmación en el EDT y aplica el cambio en segundo plano
+    private void cambiarEstadoCita(int idCita, int nuevoEstado, String mensajeYaEstaba, String pregunta, int tipoPregunta,
+            String mensajeExito, String mensajeError) {
+        cargador.ejecutar((usuario, cancelacion) -> controladorCita.obtenerEstadoCita(idCita), estadoActual -> {
+            if (estadoActual == nuevoEstado) {
+                JOptionPane.showMessageDialog(this, mensajeYaEstaba, "Advertencia", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
 
-        int confirm = JOptionPane.showConfirmDialog(this, "¿Está seguro de CANCELAR esta cita?", "Confirmar", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
-        if (confirm == JOptionPane.YES_OPTION) {
-            if (controladorCita.modificarEstadoCita(idCita, Cita.ESTADO_CANCELADO)) { // Usar constante de estado (0)
-                JOptionPane.showMessageDialog(this, "Cita CANCELADA con éxito.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
-                // Después de la acción, recargar la tabla con el filtro actual
-                String estadoSeleccionadoNombre = (String) cmbFiltroEstadoCita.getSelectedItem();
-                Integer estadoFiltro = estadosFiltroMap.get(estadoSeleccionadoNombre);
-                cargarTablaCitas(estadoFiltro);
-            } else {
-                JOptionPane.showMessageDialog(this, "Error al cancelar la cita.", "Error", JOptionPane.ERROR_MESSAGE);
+            int confirm = JOptionPane.showConfirmDialog(this, pregunta, "Confirmar", JOptionPane.YES_NO_OPTION, tipoPregunta);
+            if (confirm != JOptionPane.YES_OPTION) {
+                return;
             }
-        }
-    }//GEN-LAST:event_btnCancelarCitaActionPerformed
+            cargador.ejecutar((usuario, cancelacion) -> controladorCita.modificarEstadoCita(idCita, nuevoEstado), ok -> {
+                if (ok) {
+                    JOptionPane.showMessageDialog(this, mensajeExito, "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                    // Solo cambia la fila de esa cita; el filtro la oculta si ya no corresponde
+                    modeloCitas.actualizarEstado(idCita, nuevoEstado);
+                } else {
+                    JOptionPane.showMessageDialog(this, mensajeError, "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
+        });
+    }
 
     private void txtDniPacienteKeyReleased(java.awt.event.KeyEvent evt) {
         String dni = txtDniPaciente.getText().trim();
         // Opcional: Convertir DNI a mayúsculas si tu BD lo espera así
         // dni = dni.toUpperCase();
 
+        if (tareaNombrePaciente != null) {
+            tareaNombrePaciente.cancelar(); // El DNI cambió: la búsqueda anterior ya no sirve
+            tareaNombrePaciente = null;
+        }
+        esperaDni.stop();
         if (dni.length() >= 8) { // Autocompletar cuando el DNI tiene una longitud razonable (ej. 8 para Perú)
-            int idPaciente = controladorCita.obtenerIdPacientePorDNI(dni);
-            if (idPaciente != -1) {
-                txtNombrePaciente.setText(controladorCita.obtenerNombrePaciente(idPaciente));
-            } else {
-                txtNombrePaciente.setText("Paciente no encontrado");
-            }
+            esperaDni.restart(); // Se busca cuando se deja de escribir
         } else if (dni.isEmpty()) {
             txtNombrePaciente.setText(""); // Limpiar si el DNI está vacío
         }
     }
 
+    private void buscarNombrePaciente() {
+        String dni = txtDniPaciente.getText().trim();
+        if (dni.length() < 8) {
+            return;
+        }
+        tareaNombrePaciente = cargador.ejecutar((usuario, cancelacion) -> controladorCita.buscarPacientePorDni(dni), paciente -> {
+            tareaNombrePaciente = null;
+            txtNombrePaciente.setText(paciente != null ? paciente.getNombreCompleto() : "Paciente no encontrado");
+        });
+    }
+
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JButton btnCancelarCita;
     private javax.swing.JButton btnLimpiar;
@@ -1,8 +1,8 @@
 package vista;
 
+import controlador.CacheConsultas;
 import controlador.ControladorPaciente;
 import javax.swing.JOptionPane;
-import javax.swing.table.DefaultTableModel;
 import modelo.Paciente;
 import com.toedter.calendar.JDateChooser;
 import java.time.ZoneId;
@@ -15,46 +15,96 @@ public class GestionPacientesVista extends javax.swing.JFrame {
     public GestionPacientesVista() {
         initComponents();
         cargarTablaPacientes();
+        instalarOrdenServidor();
+        instalarBusqueda();
         this.setLocationRelativeTo(null); // Centrar la ventana
+        // Si otra instancia modifica pacientes, se piden solo las filas modificadas
+        cargador.alCambiar(modeloPacientes::refrescarCambios, CacheConsultas.PACIENTES);
 
         tableCrudPaciente.addMouseListener(new java.awt.event.MouseAdapter() {
             public void mouseClicked(java.awt.event.MouseEvent evt) {
                 int fila = tableCrudPaciente.rowAtPoint(evt.getPoint());
-                if (fila >= 0) {
+                Paciente p = fila >= 0 ? modeloPacientes.getPaciente(fila) : null;
+                if (p != null) { // Fila ya cargada: la fecha de nacimiento viene en la misma fila
                     idPacienteSeleccionado = Integer.parseInt(tableCrudPaciente.getValueAt(fila, 0).toString());
                     txtNombre.setText(tableCrudPaciente.getValueAt(fila, 1).toString());
                     txtDni.setText(tableCrudPaciente.getValueAt(fila, 2).toString());
                     txtTelefono.setText(tableCrudPaciente.getValueAt(fila, 4).toString());
                     txtDireccion.setText(tableCrudPaciente.getValueAt(fila, 5).toString());
-
-                    for (Paciente p : controlador.listar()) {
-                        if (p.getId() == idPacienteSeleccionado) {
-                            fechaNacimientoChooser.setDate(java.util.Date.from(p.getFechaNac().atStartOfDay(ZoneId.systemDefault()).toInstant()));
-                            break;
-                        }
-                    }
+                    fechaNacimientoChooser.setDate(p.getFechaNac() != null
+                            ? java.util.Date.from(p.getFechaNac().atStartOfDay(ZoneId.systemDefault()).toInstant()) : null);
                 }
             }
         });
     }
 
-    // TABLA
+    // TABLA: el modelo pide las páginas al controlador a medida que se muestran
     private void cargarTablaPacientes() {
-        DefaultTableModel modelo = new DefaultTableModel();
-        modelo.setColumnIdentifiers(new Object[]{"ID", "Nombre", "DNI", "Edad", "Teléfono", "Dirección"});
-
-        for (Paciente p : controlador.listar()) {
-            int edad = controlador.calcularEdad(p);  // Calcula la edad
-            modelo.addRow(new Object[]{
-                p.getId(), p.getNombreCompleto(), p.getDni(),
-                edad, p.getTelefono(), p.getDireccion()
-            });
+        if (tableCrudPaciente.getModel() != modeloPacientes) {
+            tableCrudPaciente.setModel(modeloPacientes);
         }
+        modeloPacientes.recargar();
+    }
+
+    // El orden por columna se resuelve en el servidor (ORDER BY), no con un RowSorter local
+    private void instalarOrdenServidor() {
+        tableCrudPaciente.setAutoCreateRowSorter(false);
+        tableCrudPaciente.getTableHeader().addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent evt) {
+                int columna = tableCrudPaciente.columnAtPoint(evt.getPoint());
+                if (columna >= 0) {
+                    modeloPacientes.ordenarPor(tableCrudPaciente.convertColumnIndexToModel(columna));
+                    actualizarCabeceras();
+                }
+            }
+        });
+        actualizarCabeceras();
+    }
+
+    private void actualizarCabeceras() {
+        javax.swing.table.TableColumnModel columnas = tableCrudPaciente.getColumnModel();
+        for (int i = 0; i < columnas.getColumnCount(); i++) {
+            int indiceModelo = columnas.getColumn(i).getModelIndex();
+            columnas.getColumn(i).setHeaderValue(modeloPacientes.getColumnName(indiceModelo));
+        }
+        tableCrudPaciente.getTableHeader().repaint();
+    }
+
+    // Campo de búsqueda por nombre o DNI (filtra en el servidor, con una pequeña espera entre teclas)
+    private void instalarBusqueda() {
+        javax.swing.JLabel lblBuscar = new javax.swing.JLabel("Buscar (nombre o DNI):");
+        lblBuscar.setForeground(new java.awt.Color(0, 0, 0));
+        jPanel1.add(lblBuscar, new org.netbeans.lib.awtextra.AbsoluteConstraints(100, 234, -1, -1), 0);
+        jPanel1.add(txtBuscar, new org.netbeans.lib.awtextra.AbsoluteConstraints(240, 228, 220, 26), 0);
+
+        javax.swing.Timer espera = new javax.swing.Timer(300, e -> {
+            modeloPacientes.setFiltro(txtBuscar.getText());
+            limpiarCampos();
+        });
+        espera.setRepeats(false);
+        txtBuscar.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            @Override
+            public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                espera.restart();
+            }
+
+            @Override
+            public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                espera.restart();
+            }
 
-        tableCrudPaciente.setModel(modelo);
+            @Override
+            public void changedUpdate(javax.swing.event.DocumentEvent e) {
+                espera.restart();
+            }
+        });
     }
 
     private ControladorPaciente controlador = new ControladorPaciente();
+    private final CargadorSegundoPlano cargador = new CargadorSegundoPlano(this);
+    private final ModeloTablaPacientes modeloPacientes = new ModeloTablaPacientes(controlador, cargador);
+    private final javax.swing.JTextField txtBuscar = new javax.swing.JTextField();
     private int idPacienteSeleccionado = -1;
 
     // LIMPIAR
@@ -289,25 +339,30 @@ public class GestionPacientesVista extends javax.swing.JFrame {
         paciente.setTelefono(txtTelefono.getText());
         paciente.setDireccion(txtDireccion.getText().trim().toUpperCase());
 
-        if (controlador.modificar(paciente)) {
-            JOptionPane.showMessageDialog(this, "Paciente modificado.");
-            cargarTablaPacientes();
-            limpiarCampos();
-        } else {
-            JOptionPane.showMessageDialog(this, "Error al modificar.");
-        }
+        cargador.ejecutar((usuario, cancelacion) -> controlador.modificar(paciente), ok -> {
+            if (ok) {
+                JOptionPane.showMessageDialog(this, "Paciente modificado.");
+                modeloPacientes.refrescarCambios();
+                limpiarCampos();
+            } else {
+                JOptionPane.showMessageDialog(this, "Error al modificar.");
+            }
+        });
     }
     }//GEN-LAST:event_btnModificarActionPerformed
 
     private void btnEliminarActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btnEliminarActionPerformed
         if (idPacienteSeleccionado != -1) {
-            if (controlador.eliminar(idPacienteSeleccionado)) {
-                JOptionPane.showMessageDialog(this, "Paciente eliminado");
-                cargarTablaPacientes();
-                limpiarCampos();
-            } else {
-                JOptionPane.showMessageDialog(this, "Error al eliminar");
-            }
+            int idEliminar = idPacienteSeleccionado;
+            cargador.ejecutar((usuario, cancelacion) -> controlador.eliminar(idEliminar), ok -> {
+                if (ok) {
+                    JOptionPane.showMessageDialog(this, "Paciente eliminado");
+                    modeloPacientes.refrescarCambios();
+                    limpiarCampos();
+                } else {
+                    JOptionPane.showMessageDialog(this, "Error al eliminar");
+                }
+            });
         }
 
     }//GEN-LAST:event_btnEliminarActionPerformed
@@ -346,13 +401,15 @@ public class GestionPacientesVista extends javax.swing.JFrame {
         paciente.setTelefono(txtTelefono.getText());
         paciente.setDireccion(txtDireccion.getText().trim().toUpperCase());
 
-        if (controlador.registrar(paciente)) {
-            JOptionPane.showMessageDialog(this, "Paciente registrado exitosamente.");
-            cargarTablaPacientes();
-            limpiarCampos();
-        } else {
-            JOptionPane.showMessageDialog(this, "Error al registrar paciente.");
-        }
+        cargador.ejecutar((usuario, cancelacion) -> controlador.registrar(paciente), ok -> {
+            if (ok) {
+                JOptionPane.showMessageDialog(this, "Paciente registrado exitosamente.");
+                modeloPacientes.refrescarCambios();
+                limpiarCampos();
+            } else {
+                JOptionPane.showMessageDialog(this, "Error al registrar paciente.");
+            }
+        });
     }//GEN-LAST:event_btnGuardarActionPerformed
 
     public static void main(String args[]) {
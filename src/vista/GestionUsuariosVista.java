@@ -1,5 +1,6 @@
 package vista;
 
+import controlador.CacheConsultas;
 import controlador.ControladorUsuario;
 import javax.swing.JOptionPane;
 import javax.swing.table.DefaultTableModel;
@@ -11,13 +12,21 @@ public class GestionUsuariosVista extends javax.swing.JFrame {
 
     private static final java.util.logging.Logger logger = java.util.logging.Logger.getLogger(GestionUsuariosVista.class.getName());
 
+    // Resultado de validar y guardar un usuario en segundo plano
+    private enum ResultadoGuardado {
+        OK, USUARIO_DUPLICADO, DNI_DUPLICADO, ERROR
+    }
+
     private final ControladorUsuario controlador = new ControladorUsuario();
+    private final CargadorSegundoPlano cargador = new CargadorSegundoPlano(this);
     private int idUsuarioSeleccionado = -1;
 
     public GestionUsuariosVista() {
         initComponents();
         cargarTablaUsuarios();
         limpiarCampos();
+        // Si otra instancia modifica usuarios, se vuelve a listar
+        cargador.alCambiar(this::cargarTablaUsuarios, CacheConsultas.USUARIOS);
         this.setLocationRelativeTo(null); // Centrar la ventana
 
         tableObstetras.addMouseListener(new java.awt.event.MouseAdapter() {
@@ -73,15 +82,19 @@ public class GestionUsuariosVista extends javax.swing.JFrame {
     }
 
     private void cargarTablaUsuarios() {
+        cargador.ejecutar((usuario, cancelacion) -> controlador.listar(), this::mostrarUsuarios);
+    }
+
+    private void mostrarUsuarios(java.util.List<Usuario> usuarios) {
         DefaultTableModel modelo = new DefaultTableModel();
     // Índices:                    0       1              2                 3              4           5       6                      7
     modelo.setColumnIdentifiers(new Object[]{"ID", "Usuario", "Contraseña (Hash)", "Nombre Completo", "DNI", "Rol", "Pregunta Seguridad", "Respuesta Seguridad"});
 
-    for (Usuario u : controlador.listar()) {
+    for (Usuario u : usuarios) {
         modelo.addRow(new Object[]{
             u.getId(),
             u.getUsuario(),
-            u.getContrasena(), // O "********"
+            "********", // listar() no trae la contraseña
             u.getNombreCompleto(),
             u.getDni(),
             u.getRol(), // <-- Asegúrate de que u.getRol() devuelve el String correcto
@@ -335,16 +348,6 @@ public class GestionUsuariosVista extends javax.swing.JFrame {
             return;
         }
 
-        // Validar unicidad de DNI y Usuario (excluyendo el propio usuario)
-        if (controlador.existeUsuarioExcluyendoId(usuario, idUsuarioSeleccionado)) {
-            JOptionPane.showMessageDialog(this, "El nombre de usuario '" + usuario + "' ya existe para otro usuario.", "Error de Duplicidad", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-        if (controlador.existeDNIExcluyendoId(dni, idUsuarioSeleccionado)) {
-            JOptionPane.showMessageDialog(this, "El DNI '" + dni + "' ya está registrado para otro usuario.", "Error de Duplicidad", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-
         Usuario u = new Usuario();
         u.setId(idUsuarioSeleccionado);
         u.setUsuario(usuario);
@@ -363,13 +366,34 @@ public class GestionUsuariosVista extends javax.swing.JFrame {
         u.setRespuestaSeguridad(respuestaSeguridad);
         u.setEstado(1); // Mantener estado activo si no hay un caso para cambiarlo aquí
 
-        if (controlador.modificar(u)) {
-            JOptionPane.showMessageDialog(this, "Usuario modificado correctamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
-            cargarTablaUsuarios();
-            limpiarCampos();
-        } else {
-            JOptionPane.showMessageDialog(this, "Error al modificar usuario. Verifique los datos o el log.", "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        // Validar unicidad de DNI y Usuario (excluyendo el propio usuario) y modificar, en segundo plano
+        int idUsuario = idUsuarioSeleccionado;
+        cargador.ejecutar((sesion, cancelacion) -> {
+            if (controlador.existeUsuarioExcluyendoId(usuario, idUsuario)) {
+                return ResultadoGuardado.USUARIO_DUPLICADO;
+            }
+            if (controlador.existeDNIExcluyendoId(dni, idUsuario)) {
+                return ResultadoGuardado.DNI_DUPLICADO;
+            }
+            return controlador.modificar(u) ? ResultadoGuardado.OK : ResultadoGuardado.ERROR;
+        }, resultado -> {
+            switch (resultado) {
+                case USUARIO_DUPLICADO:
+                    JOptionPane.showMessageDialog(this, "El nombre de usuario '" + usuario + "' ya existe para otro usuario.", "Error de Duplicidad", JOptionPane.ERROR_MESSAGE);
+                    break;
+                case DNI_DUPLICADO:
+                    JOptionPane.showMessageDialog(this, "El DNI '" + dni + "' ya está registrado para otro usuario.", "Error de Duplicidad", JOptionPane.ERROR_MESSAGE);
+                    break;
+                case OK:
+                    JOptionPane.showMessageDialog(this, "Usuario modificado correctamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                    cargarTablaUsuarios();
+                    limpiarCampos();
+                    break;
+                default:
+                    JOptionPane.showMessageDialog(this, "Error al modificar usuario. Verifique los datos o el log.", "Error", JOptionPane.ERROR_MESSAGE);
+                    break;
+            }
+        });
     }//GEN-LAST:event_btnModificarActionPerformed
 
     private void btnEliminarActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_btnEliminarActionPerformed
@@ -380,13 +404,16 @@ public class GestionUsuariosVista extends javax.swing.JFrame {
 
         int confirm = JOptionPane.showConfirmDialog(this, "¿Está seguro de que desea eliminar este usuario (desactivar)?", "Confirmar Eliminación", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            if (controlador.eliminar(idUsuarioSeleccionado)) {
-                JOptionPane.showMessageDialog(this, "Usuario eliminado (desactivado) correctamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
-                cargarTablaUsuarios();
-                limpiarCampos();
-            } else {
-                JOptionPane.showMessageDialog(this, "Error al eliminar usuario.", "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            int idEliminar = idUsuarioSeleccionado;
+            cargador.ejecutar((sesion, cancelacion) -> controlador.eliminar(idEliminar), ok -> {
+                if (ok) {
+                    JOptionPane.showMessageDialog(this, "Usuario eliminado (desactivado) correctamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                    cargarTablaUsuarios();
+                    limpiarCampos();
+                } else {
+                    JOptionPane.showMessageDialog(this, "Error al eliminar usuario.", "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            });
         }
     }//GEN-LAST:event_btnEliminarActionPerformed
 
@@ -418,16 +445,6 @@ public class GestionUsuariosVista extends javax.swing.JFrame {
             return;
         }
 
-        // Validar unicidad de DNI y Usuario antes de intentar registrar
-        if (controlador.existeUsuario(usuario)) {
-            JOptionPane.showMessageDialog(this, "El nombre de usuario '" + usuario + "' ya existe.", "Error de Duplicidad", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-        if (controlador.existeDNI(dni)) {
-            JOptionPane.showMessageDialog(this, "El DNI '" + dni + "' ya está registrado.", "Error de Duplicidad", JOptionPane.ERROR_MESSAGE);
-            return;
-        }
-
         // Validar longitud de contraseña (ejemplo)
         if (contrasena.length() < 6) { // Ejemplo de longitud mínima
             JOptionPane.showMessageDialog(this, "La contraseña debe tener al menos 6 caracteres.", "Contraseña débil", JOptionPane.WARNING_MESSAGE);
@@ -446,13 +463,33 @@ public class GestionUsuariosVista extends javax.swing.JFrame {
         nuevoUsuario.setRespuestaSeguridad(respuestaSeguridad);
         nuevoUsuario.setEstado(1); // Por defecto activo
 
-        if (controlador.registrar(nuevoUsuario)) {
-            JOptionPane.showMessageDialog(this, "Usuario registrado correctamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
-            cargarTablaUsuarios();
-            limpiarCampos();
-        } else {
-            JOptionPane.showMessageDialog(this, "Error al registrar usuario. Verifique los datos o el log.", "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        // Validar unicidad de DNI y Usuario y registrar, en segundo plano
+        cargador.ejecutar((sesion, cancelacion) -> {
+            if (controlador.existeUsuario(usuario)) {
+                return ResultadoGuardado.USUARIO_DUPLICADO;
+            }
+            if (controlador.existeDNI(dni)) {
+                return ResultadoGuardado.DNI_DUPLICADO;
+            }
+            return controlador.registrar(nuevoUsuario) ? ResultadoGuardado.OK : ResultadoGuardado.ERROR;
+        }, resultado -> {
+            switch (resultado) {
+                case USUARIO_DUPLICADO:
+                    JOptionPane.showMessageDialog(this, "El nombre de usuario '" + usuario + "' ya existe.", "Error de Duplicidad", JOptionPane.ERROR_MESSAGE);
+                    break;
+                case DNI_DUPLICADO:
+                    JOptionPane.showMessageDialog(this, "El DNI '" + dni + "' ya está registrado.", "Error de Duplicidad", JOptionPane.ERROR_MESSAGE);
+                    break;
+                case OK:
+                    JOptionPane.showMessageDialog(this, "Usuario registrado correctamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                    cargarTablaUsuarios();
+                    limpiarCampos();
+                    break;
+                default:
+                    JOptionPane.showMessageDialog(this, "Error al registrar usuario. Verifique los datos o el log.", "Error", JOptionPane.ERROR_MESSAGE);
+                    break;
+            }
+        });
     }//GEN-LAST:event_btnGuardarActionPerformed
 
     private void txtNombreCompletoActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_txtNombreCompletoActionPerformed
@@ -1,6 +1,9 @@
 package vista;
 
+import conexion.Conexion;
+import controlador.AlcancePacientes;
 import controlador.ControladorUsuario;
+import controlador.NotificadorCambios;
 import javax.swing.JOptionPane;
 import modelo.Usuario;
 import utilidades.AppSesion;
@@ -181,6 +184,23 @@ public class LoginVista extends javax.swing.JFrame {
         }
         //</editor-fold>
 
+        // Un esquema a medias (migración fallida o modificada) haría fallar después consultas sin relación
+        try {
+            Conexion.inicializar();
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage());
+            JOptionPane.showMessageDialog(null, "No se pudo preparar la base de datos:\n" + e.getMessage()
+                    + "\n\nLa aplicación se cerrará.", "Error de base de datos", JOptionPane.ERROR_MESSAGE);
+            System.exit(1);
+        }
+
+        // Revisa en segundo plano los cambios hechos por otras instancias sobre la misma base
+        NotificadorCambios.getInstancia().iniciar();
+        // La primera vez calcula los bocetos de alcance de pacientes
+        Thread alcance = new Thread(() -> AlcancePacientes.getInstancia().inicializarSiHaceFalta(null), "inicializar-alcance");
+        alcance.setDaemon(true);
+        alcance.start();
+
         java.awt.EventQueue.invokeLater(new Runnable() {
             public void run() {
                 new LoginVista().setVisible(true);
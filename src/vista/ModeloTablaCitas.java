@@ -0,0 +1,262 @@
+package vista;
+
+import java.awt.Component;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.JTable;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import modelo.Cita;
+import modelo.CitaDetalle;
+
+// Modelo de tabla de citas sobre filas CitaDetalle.
+// Las filas se ubican por id_cita, así registrar, cancelar o marcar atendida toca una sola fila
+// en lugar de volver a consultar y reconstruir toda la tabla.
+// Las filas se mantienen en el orden del listado: fecha_cita y luego id_cita.
+// Para filtrar en memoria (FiltroCitas) se mantiene el texto de búsqueda de cada fila ya en minúsculas.
+public class ModeloTablaCitas extends AbstractTableModel {
+
+    public static final int COLUMNA_ID = 0;
+    public static final int COLUMNA_FECHA = 1;
+    public static final int COLUMNA_ESTADO = 5;
+
+    private static final String[] COLUMNAS = {"ID Cita", "Fecha Cita", "DNI Paciente", "Nombre Paciente", "Programa", "Estado", "Obstetra"};
+
+    private final List<CitaDetalle> filas = new ArrayList<>();
+    // id_cita -> índice de fila
+    private final Map<Integer, Integer> indices = new HashMap<>();
+    // Texto de búsqueda por fila (paciente, DNI, programa y obstetra en minúsculas)
+    private final List<String> textos = new ArrayList<>();
+
+    // Pone los renderizadores de fecha y estado en la tabla (una sola instancia de cada uno)
+    public static void instalarRenderizadores(JTable tabla) {
+        tabla.setDefaultRenderer(Timestamp.class, new RenderizadorFecha());
+        tabla.getColumnModel().getColumn(COLUMNA_ESTADO).setCellRenderer(new RenderizadorEstado());
+    }
+
+    public void limpiar() {
+        int cantidad = filas.size();
+        filas.clear();
+        indices.clear();
+        textos.clear();
+        if (cantidad > 0) {
+            fireTableRowsDeleted(0, cantidad - 1);
+        }
+    }
+
+    // Agrega una página al final (las páginas llegan ya ordenadas)
+    public void agregar(List<CitaDetalle> pagina) {
+        if (pagina.isEmpty()) {
+            return;
+        }
+        int primera = filas.size();
+        for (CitaDetalle c : pagina) {
+            int fila = filas.size();
+            indices.put(c.getIdCita(), fila);
+            filas.add(c);
+            textos.add(textoBusqueda(c));
+        }
+        fireTableRowsInserted(primera, filas.size() - 1);
+    }
+
+    // Inserta una cita en su posición según (fecha_cita, id_cita). Devuelve la fila o -1 si ya estaba.
+    public int insertar(CitaDetalle cita) {
+        if (indices.containsKey(cita.getIdCita())) {
+            return -1;
+        }
+        int fila = posicionDe(cita);
+        filas.add(fila, cita);
+        textos.add(fila, textoBusqueda(cita));
+        reindexar(fila);
+        fireTableRowsInserted(fila, fila);
+        return fila;
+    }
+
+    public void actualizarEstado(int idCita, int nuevoEstado) {
+        Integer fila = indices.get(idCita);
+        if (fila == null) {
+            return;
+        }
+        reemplazar(fila, filas.get(fila).conEstado(nuevoEstado));
+    }
+
+    // Aplica citas nuevas o modificadas (refresco por fecha_modificacion) sin tocar el resto de las filas.
+    // Las nuevas que caen después del tramo cargado se ignoran: llegarán con su página.
+    // tramoCompleto: ya no quedan páginas por pedir, así que toda cita nueva entra.
+    public void fusionar(List<CitaDetalle> cambios, boolean tramoCompleto) {
+        for (CitaDetalle c : cambios) {
+            Integer fila = indices.get(c.getIdCita());
+            if (fila != null && comparar(filas.get(fila), c) == 0) {
+                reemplazar(fila, c);
+                continue;
+            }
+            if (fila != null) {
+                eliminar(c.getIdCita()); // Cambió la fecha: se reubica
+            }
+            if (tramoCompleto || estaEnTramoCargado(c)) {
+                insertar(c);
+            }
+        }
+    }
+
+    private void reemplazar(int fila, CitaDetalle nueva) {
+        filas.set(fila, nueva);
+        textos.set(fila, textoBusqueda(nueva));
+        fireTableRowsUpdated(fila, fila);
+    }
+
+    public void eliminar(int idCita) {
+        Integer fila = indices.remove(idCita);
+        if (fila == null) {
+            return;
+        }
+        filas.remove((int) fila);
+        textos.remove((int) fila);
+        reindexar(fila);
+        fireTableRowsDeleted(fila, fila);
+    }
+
+    public CitaDetalle getCita(int fila) {
+        return filas.get(fila);
+    }
+
+    public String getTextoBusqueda(int fila) {
+        return textos.get(fila);
+    }
+
+    public CitaDetalle getUltima() {
+        return filas.isEmpty() ? null : filas.get(filas.size() - 1);
+    }
+
+    // true si la cita cae dentro del tramo ya cargado (antes o igual que la última fila)
+    public boolean estaEnTramoCargado(CitaDetalle cita) {
+        CitaDetalle ultima = getUltima();
+        return ultima != null && comparar(cita, ultima) <= 0;
+    }
+
+    private int posicionDe(CitaDetalle cita) {
+        int bajo = 0;
+        int alto = filas.size();
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (comparar(filas.get(medio), cita) < 0) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    private static int comparar(CitaDetalle a, CitaDetalle b) {
+        int r = a.getFechaCita().compareTo(b.getFechaCita());
+        return r != 0 ? r : Integer.compare(a.getIdCita(), b.getIdCita());
+    }
+
+    // Recalcula los índices desde la fila dada (tras insertar o eliminar en el medio)
+    private void reindexar(int desde) {
+        for (int i = desde; i < filas.size(); i++) {
+            indices.put(filas.get(i).getIdCita(), i);
+        }
+    }
+
+    private static String textoBusqueda(CitaDetalle c) {
+        return (c.getNombrePaciente() + " " + c.getDniPaciente() + " " + c.getNombrePrograma() + " " + c.getNombreObstetra()).toLowerCase();
+    }
+
+    @Override
+    public int getRowCount() {
+        return filas.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNAS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNAS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        switch (columnIndex) {
+            case COLUMNA_ID:
+            case COLUMNA_ESTADO:
+                return Integer.class;
+            case COLUMNA_FECHA:
+                return Timestamp.class;
+            default:
+                return String.class;
+        }
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        CitaDetalle c = filas.get(rowIndex);
+        switch (columnIndex) {
+            case 0:
+                return c.getIdCita();
+            case 1:
+                return c.getFechaCita();
+            case 2:
+                return c.getDniPaciente();
+            case 3:
+                return c.getNombrePaciente();
+            case 4:
+                return c.getNombrePrograma();
+            case 5:
+                return c.getEstadoCita();
+            case 6:
+                return c.getNombreObstetra();
+            default:
+                return null;
+        }
+    }
+
+    // Formatea la fecha al pintar; un solo SimpleDateFormat (los renderizadores solo se usan en el EDT)
+    private static class RenderizadorFecha extends DefaultTableCellRenderer {
+
+        private final SimpleDateFormat formato = new SimpleDateFormat("dd/MM/yyyy HH:mm");
+
+        @Override
+        protected void setValue(Object value) {
+            setText(value instanceof java.util.Date ? formato.format((java.util.Date) value) : "");
+        }
+    }
+
+    // Muestra el texto del estado a partir del entero guardado en la fila
+    private static class RenderizadorEstado extends DefaultTableCellRenderer {
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+            return super.getTableCellRendererComponent(table, textoEstado(value), isSelected, hasFocus, row, column);
+        }
+
+        private static String textoEstado(Object value) {
+            if (!(value instanceof Integer)) {
+                return "";
+            }
+            switch ((Integer) value) {
+                case Cita.ESTADO_PENDIENTE:
+                    return "PENDIENTE";
+                case Cita.ESTADO_ATENDIDO:
+                    return "ATENDIDO";
+                case Cita.ESTADO_CANCELADO:
+                    return "CANCELADO";
+                default:
+                    return "DESCONOCIDO";
+            }
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package vista;
+
+import controlador.ControladorPaciente;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import javax.swing.table.AbstractTableModel;
+import modelo.Delta;
+import modelo.Pagina;
+import modelo.Paciente;
+
+// Modelo de tabla de pacientes que pide al controlador solo las páginas que se van mostrando.
+// El orden y el filtro se resuelven en el servidor (ORDER BY / WHERE).
+// Las páginas se consultan en segundo plano: mientras llegan, sus filas se muestran vacías.
+// refrescarCambios() pide solo los pacientes modificados desde la última marca y los reemplaza en su
+// fila; si un cambio mueve filas (alta, baja, filtro u orden), se recarga desde la primera página.
+public class ModeloTablaPacientes extends AbstractTableModel {
+
+    private static final int TAMANO_PAGINA = 100;
+    private static final int PAGINAS_EN_MEMORIA = 10;
+
+    private static final String[] COLUMNAS = {"ID", "Nombre", "DNI", "Edad", "Teléfono", "Dirección"};
+    private static final String[] ORDEN_POR_COLUMNA = {
+        ControladorPaciente.ORDEN_ID,
+        ControladorPaciente.ORDEN_NOMBRE,
+        ControladorPaciente.ORDEN_DNI,
+        ControladorPaciente.ORDEN_EDAD,
+        ControladorPaciente.ORDEN_TELEFONO,
+        ControladorPaciente.ORDEN_DIRECCION
+    };
+
+    private final ControladorPaciente controlador;
+    private final CargadorSegundoPlano cargador;
+    private int totalFilas = 0;
+    private int columnaOrden = 1; // Nombre
+    private boolean ascendente = true;
+    private String filtro = null;
+
+    // Páginas cargadas (LRU): número de página -> filas
+    private final LinkedHashMap<Integer, List<Paciente>> paginas = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Paciente>> eldest) {
+            return size() > PAGINAS_EN_MEMORIA;
+        }
+    };
+
+    // Páginas pedidas que todavía no llegaron (para no pedirlas dos veces)
+    private final Map<Integer, CargadorSegundoPlano.Tarea<?>> solicitadas = new HashMap<>();
+    // Cambia con cada recarga; las respuestas de una generación anterior se descartan
+    private int generacion = 0;
+    // fecha_modificacion leída junto con la primera página; null mientras no llega
+    private Timestamp marca;
+    private CargadorSegundoPlano.Tarea<Delta<Paciente>> tareaRefresco;
+
+    public ModeloTablaPacientes(ControladorPaciente controlador, CargadorSegundoPlano cargador) {
+        this.controlador = controlador;
+        this.cargador = cargador;
+    }
+
+    // Vuelve a consultar desde la primera página (tras guardar, modificar o eliminar).
+    // Las filas actuales se siguen mostrando hasta que llega la primera página nueva.
+    public void recargar() {
+        for (CargadorSegundoPlano.Tarea<?> t : solicitadas.values()) {
+            t.cancelar();
+        }
+        solicitadas.clear();
+        if (tareaRefresco != null) {
+            tareaRefresco.cancelar();
+            tareaRefresco = null;
+        }
+        marca = null;
+        int miGeneracion = ++generacion;
+        String ordenarPor = ORDEN_POR_COLUMNA[columnaOrden];
+        boolean asc = ascendente;
+        String filtroActual = filtro;
+        solicitadas.put(0, cargador.ejecutar(
+                (usuario, cancelacion) -> {
+                    // La marca se lee antes que la página: lo que cambie en medio llega en el próximo refresco
+                    Timestamp marcaLeida = controlador.obtenerMarcaPacientes();
+                    return new PrimeraPagina(controlador.consultarPagina(0, TAMANO_PAGINA, ordenarPor, asc, filtroActual), marcaLeida);
+                },
+                leida -> {
+                    if (miGeneracion != generacion) {
+                        return;
+                    }
+                    Pagina<Paciente> primera = leida.pagina;
+                    solicitadas.remove(0);
+                    paginas.clear();
+                    marca = leida.marca;
+                    totalFilas = primera.getTotalFilas();
+                    paginas.put(0, primera.getFilas());
+                    fireTableDataChanged();
+                }));
+    }
+
+    // Trae los pacientes modificados desde la marca y los aplica en las páginas cargadas.
+    // Se llama tras guardar desde esta ventana y cuando otra instancia avisa un cambio.
+    public void refrescarCambios() {
+        if (marca == null) {
+            recargar(); // Sin marca (tabla vacía o primera página pendiente) no hay con qué comparar
+            return;
+        }
+        if (tareaRefresco != null) {
+            tareaRefresco.cancelar();
+        }
+        int miGeneracion = generacion;
+        Timestamp desde = marca;
+        tareaRefresco = cargador.ejecutar((usuario, cancelacion) -> controlador.listarPacientesModificadosDesde(desde), cambios -> {
+            if (miGeneracion != generacion) {
+                return;
+            }
+            tareaRefresco = null;
+            if (cambios == null || !aplicarCambios(cambios.getFilas())) {
+                recargar();
+                return;
+            }
+            marca = cambios.getMarca();
+        });
+    }
+
+    // Reemplaza en su fila a cada paciente cambiado. Devuelve false (sin tocar nada) si algún cambio
+    // altera qué filas hay o en qué posición: eso solo lo resuelve el servidor con OFFSET.
+    private boolean aplicarCambios(List<Paciente> cambios) {
+        Map<Integer, Paciente> reemplazos = new HashMap<>();
+        for (Paciente nuevo : cambios) {
+            boolean visible = nuevo.getEstado() == 1 && cumpleFiltro(nuevo);
+            Paciente actual = buscarCargado(nuevo.getId());
+            if (actual == null) {
+                if (visible) {
+                    return false; // Alta, o cambio en una página que no está en memoria
+                }
+            } else if (!visible || !Objects.equals(claveOrden(actual), claveOrden(nuevo))) {
+                return false;
+            } else {
+                reemplazos.put(nuevo.getId(), nuevo);
+            }
+        }
+        List<Integer> filasCambiadas = new ArrayList<>();
+        for (Integer numero : new ArrayList<>(paginas.keySet())) {
+            // Las páginas pueden venir compartidas de CacheConsultas: se copian antes de cambiarlas
+            List<Paciente> filas = new ArrayList<>(paginas.get(numero));
+            boolean cambio = false;
+            for (int i = 0; i < filas.size(); i++) {
+                Paciente nuevo = reemplazos.get(filas.get(i).getId());
+                if (nuevo != null) {
+                    filas.set(i, nuevo);
+                    filasCambiadas.add(numero * TAMANO_PAGINA + i);
+                    cambio = true;
+                }
+            }
+            if (cambio) {
+                paginas.put(numero, filas);
+            }
+        }
+        for (int fila : filasCambiadas) {
+            fireTableRowsUpdated(fila, fila);
+        }
+        return true;
+    }
+
+    private Paciente buscarCargado(int id) {
+        for (List<Paciente> pagina : paginas.values()) {
+            for (Paciente p : pagina) {
+                if (p.getId() == id) {
+                    return p;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Mismo criterio que el WHERE de ControladorPaciente.consultarPagina (sin distinguir mayúsculas)
+    private boolean cumpleFiltro(Paciente p) {
+        if (filtro == null) {
+            return true;
+        }
+        String texto = filtro.toUpperCase();
+        return (p.getDni() != null && p.getDni().toUpperCase().startsWith(texto))
+                || (p.getNombreCompleto() != null && p.getNombreCompleto().toUpperCase().contains(texto));
+    }
+
+    private Object claveOrden(Paciente p) {
+        switch (columnaOrden) {
+            case 0:
+                return p.getId();
+            case 1:
+                return p.getNombreCompleto();
+            case 2:
+                return p.getDni();
+            case 3:
+                return p.getFechaNac();
+            case 4:
+                return p.getTelefono();
+            default:
+                return p.getDireccion();
+        }
+    }
+
+    public void setFiltro(String filtro) {
+        this.filtro = filtro == null || filtro.isBlank() ? null : filtro.trim();
+        recargar();
+    }
+
+    // Clic en la cabecera: misma columna invierte el sentido, otra columna ordena ascendente
+    public void ordenarPor(int columna) {
+        if (columna < 0 || columna >= ORDEN_POR_COLUMNA.length) {
+            return;
+        }
+        if (columna == columnaOrden) {
+            ascendente = !ascendente;
+        } else {
+            columnaOrden = columna;
+            ascendente = true;
+        }
+        recargar();
+    }
+
+    public int getColumnaOrden() {
+        return columnaOrden;
+    }
+
+    public boolean isAscendente() {
+        return ascendente;
+    }
+
+    // null si la página de esa fila todavía se está cargando
+    public Paciente getPaciente(int fila) {
+        List<Paciente> pagina = obtenerPagina(fila / TAMANO_PAGINA);
+        int indice = fila % TAMANO_PAGINA;
+        return pagina != null && indice < pagina.size() ? pagina.get(indice) : null;
+    }
+
+    private List<Paciente> obtenerPagina(int numero) {
+        List<Paciente> pagina = paginas.get(numero);
+        if (pagina == null) {
+            solicitarPagina(numero);
+        }
+        return pagina;
+    }
+
+    private void solicitarPagina(int numero) {
+        if (solicitadas.containsKey(numero)) {
+            return;
+        }
+        int miGeneracion = generacion;
+        String ordenarPor = ORDEN_POR_COLUMNA[columnaOrden];
+        boolean asc = ascendente;
+        String filtroActual = filtro;
+        solicitadas.put(numero, cargador.ejecutar(
+                (usuario, cancelacion) -> controlador.consultarPagina(numero, TAMANO_PAGINA, ordenarPor, asc, filtroActual),
+                pagina -> {
+                    if (miGeneracion != generacion) {
+                        return;
+                    }
+                    solicitadas.remove(numero);
+                    paginas.put(numero, pagina.getFilas());
+                    int primera = numero * TAMANO_PAGINA;
+                    int ultima = Math.min(totalFilas, primera + TAMANO_PAGINA) - 1;
+                    if (ultima >= primera) {
+                        fireTableRowsUpdated(primera, ultima);
+                    }
+                },
+                // Se deja marcada como solicitada para no reintentar en cada repintado; recargar() la vuelve a pedir
+                error -> System.err.println("Error al cargar la página " + numero + " de pacientes: " + error)));
+    }
+
+    @Override
+    public int getRowCount() {
+        return totalFilas;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNAS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        String nombre = COLUMNAS[column];
+        if (column == columnaOrden) {
+            nombre += ascendente ? " ▲" : " ▼";
+        }
+        return nombre;
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        return columnIndex == 0 || columnIndex == 3 ? Integer.class : String.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Paciente p = getPaciente(rowIndex);
+        if (p == null) {
+            return null;
+        }
+        switch (columnIndex) {
+            case 0:
+                return p.getId();
+            case 1:
+                return p.getNombreCompleto();
+            case 2:
+                return p.getDni();
+            case 3:
+                return controlador.calcularEdad(p);
+            case 4:
+                return p.getTelefono();
+            case 5:
+                return p.getDireccion();
+            default:
+                return null;
+        }
+    }
+
+    private static final class PrimeraPagina {
+
+        final Pagina<Paciente> pagina;
+        final Timestamp marca;
+
+        PrimeraPagina(Pagina<Paciente> pagina, Timestamp marca) {
+            this.pagina = pagina;
+            this.marca = marca;
+        }
+    }
+}